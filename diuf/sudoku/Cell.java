@@ -14,18 +14,16 @@ import java.util.*;
  * <ul>
  * <li>The grid this cell belongs to
  * <li>The x and y coordinates within the grid
- * <li>The current value, or <code>0</code> if the cell is empty
- * <li>The bitset of potential values for this cell (the candidates).
  * </ul>
+ * The value and the potential values (the candidates) of the cell are
+ * stored in the packed state of the grid; a cell is only a view over it.
  */
 public class Cell {
 
     private final Grid grid;
     private final int x;
     private final int y;
-    private int value = 0;
-    private BitSet potentialValues = new BitSet(16);
-    private boolean isGiven;
+    private final int index;
 
     /**
      * Create a new cell
@@ -37,17 +35,17 @@ public class Cell {
         this.grid = grid;
         this.x = x;
         this.y = y;
-        this.isGiven = false;
+        this.index = y * 16 + x;
     }
 
     public void setGiven() {
-        this.isGiven = true;
+        grid.setGivenAt(index, true);
     }
     public void resetGiven() {
-        this.isGiven = false;
+        grid.setGivenAt(index, false);
     }
     public boolean isGiven() {
-        return this.isGiven;
+        return grid.isGivenAt(index);
     }
 
     /**
@@ -68,13 +66,21 @@ public class Cell {
         return this.y;
     }
 
+    /**
+     * Get the index of this cell within the grid (y * 16 + x).
+     * @return the index of this cell
+     */
+    public int getIndex() {
+        return this.index;
+    }
+
     /**
      * Get the value of this cell. Returns <tt>0</tt>
      * if this cell is still empty.
      * @return the value of this cell.
      */
     public int getValue() {
-        return value;
+        return grid.getValueAt(index);
     }
 
     /**
@@ -82,7 +88,7 @@ public class Cell {
      * @return whether this cell is empty
      */
     public boolean isEmpty() {
-        return (value == 0);
+        return (grid.getValueAt(index) == 0);
     }
 
     /**
@@ -91,7 +97,7 @@ public class Cell {
      * clear it.
      */
     public void setValue(int value) {
-        this.value = value;
+        grid.setValueAt(index, value);
     }
 
     /**
@@ -105,15 +111,10 @@ public class Cell {
      */
     public void setValueAndCancel(int value) {
 //a     assert value != 0;
-        this.value = value;
-        this.potentialValues.clear();
-        for (Class<? extends Grid.Region> regionType : grid.getRegionTypes()) {
-            Grid.Region region = grid.getRegionAt(regionType, this.x, this.y);
-            for (int i = 0; i < 16; i++) {
-                Cell other = region.getCell(i);
-                other.removePotentialValue(value);
-            }
-        }
+        grid.setValueAt(index, value);
+        grid.clearPotentialsAt(index);
+        for (int peer : Grid.getPeerIndexes(index))
+            grid.removePotentialAt(peer, value);
     }
 
     /**
@@ -123,10 +124,32 @@ public class Cell {
      * bit number 1 to 16 is set if the corresponding
      * value is a potential value for this cell. Bit number
      * <tt>0</tt> is not used and ignored.
+     * <p>
+     * The returned bitset is a copy: changing it does not change
+     * this cell.
      * @return the potential values for this cell
+     * @see #getPotentialMask()
      */
     public BitSet getPotentialValues() {
-        return this.potentialValues;
+        return BitSet.valueOf(new long[] {(long)grid.getPotentialMaskAt(index) << 1});
+    }
+
+    /**
+     * Get the potential values for this cell as a bit mask.
+     * Bit number <tt>(value - 1)</tt> is set if the
+     * corresponding value is a potential value for this cell.
+     * @return the potential values mask for this cell
+     */
+    public int getPotentialMask() {
+        return grid.getPotentialMaskAt(index);
+    }
+
+    /**
+     * Get the number of potential values for this cell.
+     * @return the number of potential values for this cell
+     */
+    public int getPotentialCount() {
+        return Integer.bitCount(grid.getPotentialMaskAt(index));
     }
 
     /**
@@ -136,7 +159,7 @@ public class Cell {
      * @return whether the given value is a potential value for this cell
      */
     public boolean hasPotentialValue(int value) {
-        return this.potentialValues.get(value);
+        return (grid.getPotentialMaskAt(index) & (1 << (value - 1))) != 0;
     }
 
     /**
@@ -144,7 +167,7 @@ public class Cell {
      * @param value the value to add, between 1 and 16, inclusive
      */
     public void addPotentialValue(int value) {
-        this.potentialValues.set(value, true);
+        grid.addPotentialAt(index, value);
     }
 
     /**
@@ -152,15 +175,17 @@ public class Cell {
      * @param value the value to remove, between 1 and 16, inclusive
      */
     public void removePotentialValue(int value) {
-        this.potentialValues.set(value, false);
+        grid.removePotentialAt(index, value);
     }
 
     public void removePotentialValues(BitSet valuesToRemove) {
-        this.potentialValues.andNot(valuesToRemove);
+        long[] words = valuesToRemove.toLongArray();
+        if (words.length > 0)
+            grid.removePotentialsAt(index, (int)(words[0] >>> 1) & 0xFFFF);
     }
 
     public void clearPotentialValues() {
-        this.potentialValues.clear();
+        grid.clearPotentialsAt(index);
     }
 
     /**
@@ -175,21 +200,25 @@ public class Cell {
      * @return the cells that are controlled by this cell
      */
     public Collection<Cell> getHouseCells() {
-        // Use a set to prevent duplicates (cells in both block and row/column)
-        Collection<Cell> result = new LinkedHashSet<Cell>();
-        // Iterate on region types (Block, Row, Column)
-        for (Class<? extends Grid.Region> regionType : grid.getRegionTypes()) {
-            // Get region on which this cell is
-            Grid.Region region = grid.getRegionAt(regionType, x, y);
-            // Add all cell of that region
-            for (int i = 0; i < 16; i++)
-                result.add(region.getCell(i));
-        }
-        // Remove this cell
-        result.remove(this);
+        // The peer table is ordered by region types (Block, Row, Column)
+        int[] peers = Grid.getPeerIndexes(index);
+        Collection<Cell> result = new LinkedHashSet<Cell>(peers.length * 2);
+        for (int peer : peers)
+            result.add(grid.getCell(peer));
         return result;
     }
 
+    /**
+     * Test whether the given cell is in the "house" of this cell, that is,
+     * whether the two cells are distinct and share a block, row or column.
+     * @param other the other cell
+     * @return whether the given cell is in the house of this cell
+     * @see #getHouseCells()
+     */
+    public boolean isHouseCell(Cell other) {
+        return Grid.isPeer(this.index, other.index);
+    }
+
     /**
      * Get a string representation of a cell. The notation that
      * is used is defined by the {@link Settings} class.
@@ -277,9 +306,9 @@ public class Cell {
      */
     public void copyTo(Cell other) {
 //a     assert this.x == other.x && this.y == other.y;
-        other.value = this.value;
-        other.potentialValues = (BitSet)this.potentialValues.clone();
-        other.isGiven = this.isGiven;
+        other.grid.setValueAt(other.index, this.getValue());
+        other.grid.setPotentialsAt(other.index, this.getPotentialMask());
+        other.grid.setGivenAt(other.index, this.isGiven());
     }
 
 }
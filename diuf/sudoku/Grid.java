@@ -5,6 +5,7 @@
  */
 package diuf.sudoku;
 
+import java.nio.*;
 import java.util.*;
 
 /**
@@ -19,11 +20,160 @@ import java.util.*;
  */
 public class Grid {
 
+    /**
+     * The size in bytes of the binary encoding of a grid
+     * (see {@link #writeTo(ByteBuffer)})
+     */
+    public static final int ENCODED_SIZE = 256 * 3;
+
+    /**
+     * The region types, as used by the int-indexed region methods. The
+     * region number <tt>n</tt> (between 0 and 15) of type <tt>t</tt> has the
+     * index <tt>t * 16 + n</tt> among the 48 regions of the grid.
+     * @see Region#getRegionIndex()
+     */
+    public static final int BLOCK = 0;
+    public static final int ROW = 1;
+    public static final int COLUMN = 2;
+
+    /*
+     * Packed state of the grid. All arrays are indexed by cell index
+     * (y * 16 + x). Potential values are stored as a bit mask where bit
+     * number (value - 1) is set if the value is a potential value of the cell.
+     */
+    private final byte[] values = new byte[256];
+    private final short[] potentials = new short[256];
+    private final boolean[] givens = new boolean[256];
+
+    /*
+     * Derived state, kept up to date by the mutators below:
+     * - planes: for each value, the 256-bit set of the cells having that value
+     *   as a potential value. Indexed by (value - 1) * 4 + index / 64.
+     * - positions: for each region and value, the 16-bit mask of the potential
+     *   positions of the value within the region (see Region.getCell(int)).
+     *   Indexed by region index * 16 + (value - 1).
+     */
+    private final long[] planes = new long[16 * 4];
+    private final short[] positions = new short[48 * 16];
+
+    /*
+     * Statistics, kept up to date by the mutators below:
+     * - emptyCount: the number of empty cells of the grid
+     * - regionEmptyCounts: the number of empty cells of each region
+     * - regionValueCounts: the number of cells of each region filled with each
+     *   value. Indexed by region index * 16 + (value - 1).
+     * - valueCounts: the number of cells of the grid filled with each value.
+     *   Indexed by (value - 1).
+     */
+    private int emptyCount = 256;
+    private final int[] regionEmptyCounts = new int[48];
+    private final byte[] regionValueCounts = new byte[48 * 16];
+    private final int[] valueCounts = new int[16];
+
+    /*
+     * Zobrist fingerprint of the values and potential values of the cells:
+     * the exclusive or of the keys of all (cell, value) pairs and of all
+     * (cell, potential value) pairs of the grid.
+     */
+    private long fingerprint = 0;
+
     /*
-     * Cells of the grid. First array index is the vertical index (from top
-     * to bottom), and second index is horizontal index (from left to right).
+     * Change tracking (see getChangeCount()). Every change of a cell (value,
+     * potential values or given flag) increments the change count, and stamps
+     * the cell, its three regions and the values whose placement or potential
+     * positions changed with the new count.
      */
-    private Cell[][] cells = new Cell[16][16];
+    private long changeCount = 0;
+    private final long[] cellStamps = new long[256];
+    private final long[] regionStamps = new long[48];
+    private final long[] valueStamps = new long[16];
+
+    /*
+     * Static tables shared by all grids. Regions are numbered from 0 to 47:
+     * blocks first (0 to 15), then rows (16 to 31), then columns (32 to 47).
+     * - CELL_REGIONS, CELL_POSITIONS: for each cell index, the three regions
+     *   of the cell (in the block, row, column order), and the position of the
+     *   cell within each of them. Indexed by cell index * 3 + region type.
+     * - REGION_CELLS: for each region, the indexes of its 16 cells.
+     * - PEERS: for each cell index, the indexes of the cells sharing a region
+     *   with it, in the order of Cell.getHouseCells().
+     * - PEER_MASKS: for each cell index, the same cells as a 256-bit set.
+     *   Indexed by cell index * 4 + peer index / 64.
+     * - INTERSECTIONS: for each pair of regions, the 16-bit mask of the
+     *   positions, within the first region, of the cells shared with the
+     *   second one. Indexed by region index 1 * 48 + region index 2.
+     */
+    private static final int[] CELL_REGIONS = new int[256 * 3];
+    private static final int[] CELL_POSITIONS = new int[256 * 3];
+    private static final int[][] REGION_CELLS = new int[48][16];
+    private static final int[][] PEERS = new int[256][];
+    private static final long[] PEER_MASKS = new long[256 * 4];
+    private static final short[] INTERSECTIONS = new short[48 * 48];
+
+    /*
+     * Random keys of the fingerprint, indexed by cell index * 16 + (value - 1).
+     * A fixed seed is used so that fingerprints are stable accross runs.
+     */
+    private static final long[] VALUE_KEYS = new long[256 * 16];
+    private static final long[] POTENTIAL_KEYS = new long[256 * 16];
+
+    static {
+        for (int index = 0; index < 256; index++) {
+            int x = index % 16;
+            int y = index / 16;
+            CELL_REGIONS[index * 3] = (y / 4) * 4 + (x / 4);
+            CELL_POSITIONS[index * 3] = (y % 4) * 4 + (x % 4);
+            CELL_REGIONS[index * 3 + 1] = 16 + y;
+            CELL_POSITIONS[index * 3 + 1] = x;
+            CELL_REGIONS[index * 3 + 2] = 32 + x;
+            CELL_POSITIONS[index * 3 + 2] = y;
+            for (int i = index * 3; i < index * 3 + 3; i++)
+                REGION_CELLS[CELL_REGIONS[i]][CELL_POSITIONS[i]] = index;
+        }
+        for (int index = 0; index < 256; index++) {
+            int[] peers = new int[39];
+            int count = 0;
+            for (int i = index * 3; i < index * 3 + 3; i++) {
+                for (int peer : REGION_CELLS[CELL_REGIONS[i]]) {
+                    int word = index * 4 + (peer >> 6);
+                    long bit = 1L << (peer & 63);
+                    if (peer != index && (PEER_MASKS[word] & bit) == 0) {
+                        PEER_MASKS[word] |= bit;
+                        peers[count++] = peer;
+                    }
+                }
+            }
+            PEERS[index] = peers;
+        }
+        for (int region = 0; region < 48; region++) {
+            for (int pos = 0; pos < 16; pos++) {
+                int index = REGION_CELLS[region][pos];
+                for (int i = index * 3; i < index * 3 + 3; i++)
+                    INTERSECTIONS[region * 48 + CELL_REGIONS[i]] |= (short)(1 << pos);
+            }
+        }
+        Random random = new Random(0x5d0c0de16L);
+        for (int i = 0; i < 256 * 16; i++) {
+            VALUE_KEYS[i] = random.nextLong();
+            POTENTIAL_KEYS[i] = random.nextLong();
+        }
+    }
+
+    /*
+     * Cells of the grid, indexed by cell index (y * 16 + x). Cells are
+     * thin views over the packed state above.
+     */
+    private final Cell[] cells = new Cell[256];
+
+    /*
+     * Undo journal (see mark() and rewind(int)). While journaling, every
+     * change of a cell is recorded as one int holding the cell index (bits
+     * 0 to 7), its previous value (bits 8 to 12) and its previous potential
+     * values mask (bits 13 to 28).
+     */
+    private int[] journal = null;
+    private int journalSize = 0;
+    private boolean isJournaling = false;
 
     // Views
     private Row[] rows = new Row[16];
@@ -35,9 +185,10 @@ public class Grid {
      * Create a new 16x16 Sudoku grid. All cells are set to empty
      */
     public Grid() {
+        Arrays.fill(regionEmptyCounts, 16);
         for (int y = 0; y < 16; y++) {
             for (int x = 0; x < 16; x++) {
-                cells[y][x] = new Cell(this, x, y);
+                cells[y * 16 + x] = new Cell(this, x, y);
             }
         }
         // Build subparts views
@@ -50,12 +201,7 @@ public class Grid {
 
     public void fixGivens() {
         for (int i = 0; i < 256; i++) {
-            if ( getCellValue(i%16,i/16) != 0 ) {
-                getCell(i%16,i/16).setGiven();
-            }
-            else {
-                getCell(i%16,i/16).resetGiven();
-            }
+            setGivenAt(i, values[i] != 0);
         }
     }
 
@@ -66,7 +212,16 @@ public class Grid {
      * @return the cell at the given coordinates
      */
     public Cell getCell(int x, int y) {
-        return this.cells[y][x];
+        return this.cells[y * 16 + x];
+    }
+
+    /**
+     * Get the cell at the given index
+     * @param index the index of the cell (y * 16 + x), between 0 and 255, inclusive
+     * @return the cell at the given index
+     */
+    public Cell getCell(int index) {
+        return this.cells[index];
     }
 
     /**
@@ -133,8 +288,9 @@ public class Grid {
      * @param value the value to set the cell to. Use 0 to clear the cell.
      */
     public void setCellValue(int x, int y, int value) {
-        this.cells[y][x].setValue(value);
-        this.cells[y][x].setGiven();
+        int index = y * 16 + x;
+        setValueAt(index, value);
+        setGivenAt(index, true);
     }
 
     /**
@@ -144,7 +300,406 @@ public class Grid {
      * @return the value of the cell, or 0 if the cell is empty
      */
     public int getCellValue(int x, int y) {
-        return this.cells[y][x].getValue();
+        return this.values[y * 16 + x];
+    }
+
+    // Packed state access, by cell index (y * 16 + x)
+
+    /**
+     * Get the value of the cell at the given index
+     * @param index the index of the cell (y * 16 + x)
+     * @return the value of the cell, or 0 if the cell is empty
+     */
+    public int getValueAt(int index) {
+        return this.values[index];
+    }
+
+    /**
+     * Get the potential values of the cell at the given index, as
+     * a bit mask. Bit number (value - 1) is set if the value is a
+     * potential value of the cell.
+     * @param index the index of the cell (y * 16 + x)
+     * @return the potential values mask of the cell
+     */
+    public int getPotentialMaskAt(int index) {
+        return this.potentials[index] & 0xFFFF;
+    }
+
+    boolean isGivenAt(int index) {
+        return this.givens[index];
+    }
+
+    void setGivenAt(int index, boolean isGiven) {
+        if (givens[index] != isGiven) {
+            stamp(index, 0);
+            this.givens[index] = isGiven;
+        }
+    }
+
+    /*
+     * All changes of values and potential values go through the
+     * following methods.
+     */
+
+    void setValueAt(int index, int value) {
+        if (values[index] == value)
+            return;
+        if (isJournaling)
+            record(index);
+        if (values[index] != 0)
+            fingerprint ^= VALUE_KEYS[index * 16 + values[index] - 1];
+        if (value != 0)
+            fingerprint ^= VALUE_KEYS[index * 16 + value - 1];
+        stamp(index, valueBit(values[index]) | valueBit(value));
+        count(index, values[index], -1);
+        count(index, value, 1);
+        this.values[index] = (byte)value;
+    }
+
+    void addPotentialAt(int index, int value) {
+        changePotentialsAt(index, (potentials[index] & 0xFFFF) | (1 << (value - 1)));
+    }
+
+    void removePotentialAt(int index, int value) {
+        changePotentialsAt(index, (potentials[index] & 0xFFFF) & ~(1 << (value - 1)));
+    }
+
+    void removePotentialsAt(int index, int mask) {
+        changePotentialsAt(index, (potentials[index] & 0xFFFF) & ~mask);
+    }
+
+    void clearPotentialsAt(int index) {
+        changePotentialsAt(index, 0);
+    }
+
+    void setPotentialsAt(int index, int mask) {
+        changePotentialsAt(index, mask & 0xFFFF);
+    }
+
+    private void changePotentialsAt(int index, int mask) {
+        int changed = (potentials[index] & 0xFFFF) ^ mask;
+        if (changed == 0)
+            return;
+        if (isJournaling)
+            record(index);
+        this.potentials[index] = (short)mask;
+        stamp(index, changed);
+        // Toggle the changed values in the planes and the region positions
+        int word = index >> 6;
+        long cellBit = 1L << (index & 63);
+        int base = index * 3;
+        while (changed != 0) {
+            int bit = Integer.numberOfTrailingZeros(changed);
+            changed &= changed - 1;
+            planes[bit * 4 + word] ^= cellBit;
+            fingerprint ^= POTENTIAL_KEYS[index * 16 + bit];
+            for (int i = base; i < base + 3; i++)
+                positions[CELL_REGIONS[i] * 16 + bit] ^= (short)(1 << CELL_POSITIONS[i]);
+        }
+    }
+
+    private void count(int index, int value, int delta) {
+        int base = index * 3;
+        if (value == 0) {
+            emptyCount += delta;
+            for (int i = base; i < base + 3; i++)
+                regionEmptyCounts[CELL_REGIONS[i]] += delta;
+        } else {
+            valueCounts[value - 1] += delta;
+            for (int i = base; i < base + 3; i++)
+                regionValueCounts[CELL_REGIONS[i] * 16 + value - 1] += delta;
+        }
+    }
+
+    private static int valueBit(int value) {
+        return (value == 0 ? 0 : 1 << (value - 1));
+    }
+
+    private void stamp(int index, int changedValues) {
+        long stamp = ++changeCount;
+        cellStamps[index] = stamp;
+        for (int i = index * 3; i < index * 3 + 3; i++)
+            regionStamps[CELL_REGIONS[i]] = stamp;
+        for (; changedValues != 0; changedValues &= changedValues - 1)
+            valueStamps[Integer.numberOfTrailingZeros(changedValues)] = stamp;
+    }
+
+    private void record(int index) {
+        if (journalSize == journal.length)
+            journal = Arrays.copyOf(journal, journalSize * 2);
+        journal[journalSize++] = index | (values[index] << 8)
+                | ((potentials[index] & 0xFFFF) << 13);
+    }
+
+    // Undo journal
+
+    /**
+     * Get a mark of the current state of this grid, to be used with
+     * {@link #rewind(int)}. Starts journaling the changes of the values
+     * and potential values of the cells if not already done.
+     * <p>
+     * Changes of the givens, and copies made by {@link #copyTo(Grid)},
+     * are not journaled.
+     * @return the mark of the current state
+     * @see #endJournal()
+     */
+    public int mark() {
+        if (!isJournaling) {
+            if (journal == null)
+                journal = new int[1024];
+            journalSize = 0;
+            isJournaling = true;
+        }
+        return journalSize;
+    }
+
+    /**
+     * Undo all changes of the values and potential values of the cells made
+     * since the given mark was taken. Marks taken after the given mark
+     * become invalid.
+     * @param mark a mark returned by {@link #mark()} while journaling
+     */
+    public void rewind(int mark) {
+        isJournaling = false;
+        while (journalSize > mark) {
+            int entry = journal[--journalSize];
+            int index = entry & 0xFF;
+            setValueAt(index, (entry >> 8) & 0x1F);
+            changePotentialsAt(index, entry >>> 13);
+        }
+        isJournaling = true;
+    }
+
+    /**
+     * Stop journaling the changes of this grid, and forget all marks.
+     */
+    public void endJournal() {
+        isJournaling = false;
+        journalSize = 0;
+    }
+
+    /**
+     * Test whether the changes of this grid are being journaled
+     * @return whether the changes of this grid are being journaled
+     * @see #mark()
+     */
+    public boolean isJournaling() {
+        return this.isJournaling;
+    }
+
+    /**
+     * Get one 64-bit word of the set of cells having the given value
+     * as a potential value. Bit number <tt>(index % 64)</tt> of word
+     * number <tt>(index / 64)</tt> is set if the cell at the given index
+     * has the value as a potential value.
+     * @param value the value, between 1 and 16, inclusive
+     * @param word the number of the word, between 0 and 3, inclusive
+     * @return the requested word of the cells having the given potential value
+     */
+    public long getPotentialCells(int value, int word) {
+        return this.planes[(value - 1) * 4 + word];
+    }
+
+    /**
+     * Get the 64-bit fingerprint of the values and potential values of
+     * the cells of this grid. The fingerprint is maintained incrementally,
+     * and getting it costs nothing.
+     * <p>
+     * Equal grids (see {@link #equals(Object)}) have the same fingerprint.
+     * Different grids have the same fingerprint with a probability of
+     * about 2<sup>-64</sup>; the fingerprint can therefore be used as a key
+     * of caches of results computed from a grid.
+     * @return the fingerprint of this grid
+     */
+    public long getFingerprint() {
+        return this.fingerprint;
+    }
+
+    // Change tracking
+
+    /**
+     * Get the number of changes made so far to the values, potential
+     * values and given flags of the cells of this grid. The result can be kept as a
+     * checkpoint, and later given to {@link #getChangedCells(long, int)},
+     * {@link #getChangedRegions(long)} or {@link #getChangedValues(long)}
+     * to know what changed since then.
+     * @return the number of changes made to this grid
+     */
+    public long getChangeCount() {
+        return this.changeCount;
+    }
+
+    /**
+     * Get one 64-bit word of the set of cells whose value, potential
+     * values or given flag changed since the given checkpoint. Bit number <tt>(index % 64)</tt>
+     * of word number <tt>(index / 64)</tt> is set for each such cell.
+     * @param checkpoint a value returned by {@link #getChangeCount()}
+     * @param word the number of the word, between 0 and 3, inclusive
+     * @return the requested word of the set of changed cells
+     */
+    public long getChangedCells(long checkpoint, int word) {
+        long result = 0;
+        for (int i = 0; i < 64; i++) {
+            if (cellStamps[word * 64 + i] > checkpoint)
+                result |= 1L << i;
+        }
+        return result;
+    }
+
+    /**
+     * Get the regions containing a cell whose value, potential values or
+     * given flag changed since the given checkpoint. Bit number <tt>i</tt> of the
+     * result is set if the region of index <tt>i</tt> changed (see
+     * {@link Region#getRegionIndex()}).
+     * @param checkpoint a value returned by {@link #getChangeCount()}
+     * @return the mask of the changed regions
+     */
+    public long getChangedRegions(long checkpoint) {
+        long result = 0;
+        for (int i = 0; i < 48; i++) {
+            if (regionStamps[i] > checkpoint)
+                result |= 1L << i;
+        }
+        return result;
+    }
+
+    /**
+     * Get the values whose placements or potential positions changed
+     * since the given checkpoint. Bit number
+     * <tt>(value - 1)</tt> of the result is set for each such value.
+     * @param checkpoint a value returned by {@link #getChangeCount()}
+     * @return the mask of the changed values
+     */
+    public int getChangedValues(long checkpoint) {
+        int result = 0;
+        for (int i = 0; i < 16; i++) {
+            if (valueStamps[i] > checkpoint)
+                result |= 1 << i;
+        }
+        return result;
+    }
+
+    // Static cell tables, by cell index (y * 16 + x)
+
+    /**
+     * Get the indexes of the 39 cells sharing a region (block, row or column)
+     * with the cell at the given index. The order is the same as in
+     * {@link Cell#getHouseCells()}.
+     * <p>
+     * The returned array is shared by all grids and must not be modified.
+     * @param index the index of the cell (y * 16 + x)
+     * @return the indexes of the cells sharing a region with the given cell
+     */
+    public static int[] getPeerIndexes(int index) {
+        return PEERS[index];
+    }
+
+    /**
+     * Get one 64-bit word of the set of cells sharing a region with the
+     * cell at the given index. Bit number <tt>(peer % 64)</tt> of word
+     * number <tt>(peer / 64)</tt> is set for each such cell.
+     * @param index the index of the cell (y * 16 + x)
+     * @param word the number of the word, between 0 and 3, inclusive
+     * @return the requested word of the set of cells sharing a region with the given cell
+     */
+    public static long getPeerMask(int index, int word) {
+        return PEER_MASKS[index * 4 + word];
+    }
+
+    /**
+     * Test whether two distinct cells share a region (block, row or column)
+     * @param index1 the index of the first cell
+     * @param index2 the index of the second cell
+     * @return whether the two cells share a region
+     */
+    public static boolean isPeer(int index1, int index2) {
+        return (PEER_MASKS[index1 * 4 + (index2 >> 6)] & (1L << (index2 & 63))) != 0;
+    }
+
+    /**
+     * Get the index of one of the three regions of the cell at the given index.
+     * Regions are numbered from 0 to 47: blocks first (0 to 15), then rows
+     * (16 to 31), then columns (32 to 47).
+     * @param index the index of the cell (y * 16 + x)
+     * @param regionType the type of the region: {@link #BLOCK}, {@link #ROW}
+     * or {@link #COLUMN} (the order of {@link #getRegionTypes()})
+     * @return the index of the region
+     * @see Region#getRegionIndex()
+     */
+    public static int getRegionIndexOf(int index, int regionType) {
+        return CELL_REGIONS[index * 3 + regionType];
+    }
+
+    /**
+     * Get the indexes of the cells of the region at the given index, in the
+     * order of {@link Region#getCell(int)}.
+     * <p>
+     * The returned array is shared and must not be modified.
+     * @param regionIndex the index of the region, between 0 and 47, inclusive
+     * @return the indexes of the 16 cells of the region
+     */
+    public static int[] getRegionCellIndexes(int regionIndex) {
+        return REGION_CELLS[regionIndex];
+    }
+
+    /**
+     * Get the cells shared by two regions, as a mask of positions within
+     * the first region: bit number <tt>i</tt> is set if the cell at position
+     * <tt>i</tt> of the first region (as in {@link Region#getCell(int)}) also
+     * belongs to the second region.
+     * @param regionIndex1 the index of the first region
+     * @param regionIndex2 the index of the second region
+     * @return the positions of the common cells within the first region
+     */
+    public static int getIntersectionMask(int regionIndex1, int regionIndex2) {
+        return INTERSECTIONS[regionIndex1 * 48 + regionIndex2] & 0xFFFF;
+    }
+
+    /**
+     * Test whether two regions have at least one common cell
+     * @param regionIndex1 the index of the first region
+     * @param regionIndex2 the index of the second region
+     * @return whether the two regions cross
+     * @see Region#crosses(Region)
+     */
+    public static boolean crosses(int regionIndex1, int regionIndex2) {
+        return INTERSECTIONS[regionIndex1 * 48 + regionIndex2] != 0;
+    }
+
+    /**
+     * Get the region at the given index
+     * @param regionIndex the index of the region, between 0 and 47, inclusive
+     * @return the region at the given index
+     * @see Region#getRegionIndex()
+     */
+    public Region getRegion(int regionIndex) {
+        return getRegions(regionIndex >> 4)[regionIndex & 15];
+    }
+
+    /**
+     * Get the 16 regions of the given type
+     * @param regionType the type of the regions to return: {@link #BLOCK},
+     * {@link #ROW} or {@link #COLUMN}
+     * @return the 16 regions of the given type
+     */
+    public Region[] getRegions(int regionType) {
+        if (regionType == ROW)
+            return this.rows;
+        else if (regionType == COLUMN)
+            return this.columns;
+        else
+            return this.blocks;
+    }
+
+    /**
+     * Get the region of the given type containing the cell at the given index
+     * @param regionType the type of the region: {@link #BLOCK},
+     * {@link #ROW} or {@link #COLUMN}
+     * @param index the index of the cell (y * 16 + x)
+     * @return the region of the given type containing the cell
+     */
+    public Region getRegionAt(int regionType, int index) {
+        return getRegions(regionType)[CELL_REGIONS[index * 3 + regionType] & 15];
     }
 
     /**
@@ -179,9 +734,9 @@ public class Grid {
     }
 
     public Grid.Region getRegionAt(Class<? extends Grid.Region> regionType, int x, int y) {
-        if (regionType.equals(Grid.Row.class))
+        if (regionType == Grid.Row.class)
             return getRowAt(x, y);
-        else if (regionType.equals(Grid.Column.class))
+        else if (regionType == Grid.Column.class)
             return getColumnAt(x, y);
         else
             return getBlockAt(x, y);
@@ -192,9 +747,9 @@ public class Grid {
     }
 
     public int getRegionNum(Class<? extends Grid.Region> regionType, int x, int y) {
-        if (regionType.equals(Grid.Row.class))
+        if (regionType == Grid.Row.class)
             return getRowAt(x, y).getRowNum();
-        else if (regionType.equals(Grid.Column.class))
+        else if (regionType == Grid.Column.class)
             return getColumnAt(x, y).getColumnNum();
         else
             return getBlockAt(x, y).getBlockNum();
@@ -231,6 +786,31 @@ public class Grid {
      */
     public abstract class Region {
 
+        private final int regionIndex;
+
+        Region(int regionIndex) {
+            this.regionIndex = regionIndex;
+        }
+
+        /**
+         * Get the index of this region among the 48 regions of the grid:
+         * blocks are numbered from 0 to 15, rows from 16 to 31 and columns
+         * from 32 to 47.
+         * @return the index of this region
+         */
+        public int getRegionIndex() {
+            return this.regionIndex;
+        }
+
+        /**
+         * Get the type of this region: {@link Grid#BLOCK}, {@link Grid#ROW}
+         * or {@link Grid#COLUMN}
+         * @return the type of this region
+         */
+        public int getRegionType() {
+            return this.regionIndex >> 4;
+        }
+
         /**
          * Get a cell of this region by index. The order in which cells are
          * returned according to the index is not defined, but is guaranted
@@ -267,11 +847,9 @@ public class Grid {
          * @return whether this region contains the given value
          */
         public boolean contains(int value) {
-            for (int i = 0; i < 16; i++) {
-                if (getCell(i).getValue() == value)
-                    return true;
-            }
-            return false;
+            if (value == 0)
+                return regionEmptyCounts[regionIndex] > 0;
+            return regionValueCounts[regionIndex * 16 + value - 1] > 0;
         }
 
         /**
@@ -285,14 +863,20 @@ public class Grid {
          * @see Cell#getPotentialValues()
          */
         public BitSet getPotentialPositions(int value) {
-            BitSet result = new BitSet(16);
-            for (int index = 0; index < 16; index++) {
-            //  result.set(index, getCell(index).hasPotentialValue(value));
-                if ( getCell(index).hasPotentialValue(value) ) {
-                    result.set(index);
-                }
-            }
-            return result;
+            return BitSet.valueOf(new long[] {getPotentialPositionsMask(value)});
+        }
+
+        /**
+         * Get the potential positions of the given value within this region,
+         * as a bit mask. Bit number <tt>i</tt> is set if the cell at index
+         * <tt>i</tt> (as in {@link #getCell(int)}) has the given value as a
+         * potential value.
+         * @param value the value whose potential positions to get
+         * @return the potential positions mask of the given value within this region
+         * @see #getPotentialPositions(int)
+         */
+        public int getPotentialPositionsMask(int value) {
+            return positions[regionIndex * 16 + value - 1] & 0xFFFF;
         }
 
         public BitSet copyPotentialPositions(int value) {
@@ -332,7 +916,7 @@ public class Grid {
          * @return whether this region crosses the other region.
          */
         public boolean crosses(Region other) {
-            return !commonCells(other).isEmpty();
+            return Grid.crosses(this.regionIndex, other.regionIndex);
         }
 
         /**
@@ -340,11 +924,7 @@ public class Grid {
          * @return the number of cells of this region that are still empty
          */
         public int getEmptyCellCount() {
-            int result = 0;
-            for (int i = 0; i < 16; i++)
-                if (getCell(i).isEmpty())
-                    result++;
-            return result;
+            return regionEmptyCounts[regionIndex];
         }
 
         /**
@@ -371,6 +951,7 @@ public class Grid {
         private int rowNum;
 
         public Row(int rowNum) {
+            super(16 + rowNum);
             this.rowNum = rowNum;
         }
 
@@ -380,7 +961,7 @@ public class Grid {
 
         @Override
         public Cell getCell(int index) {
-            return cells[rowNum][index];
+            return cells[rowNum * 16 + index];
         }
 
         @Override
@@ -388,21 +969,6 @@ public class Grid {
             return cell.getX();
         }
 
-        @Override
-        public boolean crosses(Region other) {
-            if (other instanceof Block) {
-                Block square = (Block)other;
-                return rowNum / 4 == square.vNum;
-            } else if (other instanceof Column) {
-                return true;
-            } else if (other instanceof Row) {
-                Row row = (Row)other;
-                return this.rowNum == row.rowNum;
-            } else {
-                return super.crosses(other);
-            }
-        }
-
         @Override
         public String toString() {
             return "row";
@@ -432,6 +998,7 @@ public class Grid {
         private int columnNum;
 
         public Column(int columnNum) {
+            super(32 + columnNum);
             this.columnNum = columnNum;
         }
 
@@ -441,7 +1008,7 @@ public class Grid {
 
         @Override
         public Cell getCell(int index) {
-            return cells[index][columnNum];
+            return cells[index * 16 + columnNum];
         }
 
         @Override
@@ -449,21 +1016,6 @@ public class Grid {
             return cell.getY();
         }
 
-        @Override
-        public boolean crosses(Region other) {
-            if (other instanceof Block) {
-                Block square = (Block)other;
-                return columnNum / 4 == square.hNum;
-            } else if (other instanceof Row) {
-                return true;
-            } else if (other instanceof Column) {
-                Column column = (Column)other;
-                return this.columnNum == column.columnNum;
-            } else {
-                return super.crosses(other);
-            }
-        }
-
         @Override
         public String toString() {
             return "column";
@@ -493,6 +1045,7 @@ public class Grid {
         private int vNum, hNum;
 
         public Block(int vNum, int hNum) {
+            super(vNum * 4 + hNum);
             this.vNum = vNum;
             this.hNum = hNum;
         }
@@ -511,7 +1064,7 @@ public class Grid {
 
         @Override
         public Cell getCell(int index) {
-            return cells[vNum * 4 + index / 4][hNum * 4 + index % 4];
+            return cells[(vNum * 4 + index / 4) * 16 + hNum * 4 + index % 4];
         }
 
         @Override
@@ -519,20 +1072,6 @@ public class Grid {
             return (cell.getY() % 4) * 4 + (cell.getX() % 4);
         }
 
-        @Override
-        public boolean crosses(Region other) {
-            if (other instanceof Row) {
-                return ((Row)other).crosses(this);
-            } else if (other instanceof Column) {
-                return ((Column)other).crosses(this);
-            } else if (other instanceof Block) {
-                Block square = (Block)other;
-                return this.vNum == square.vNum && this.hNum == square.hNum;
-            } else {
-                return super.crosses(other);
-            }
-        }
-
         @Override
         public String toString() {
             return "block";
@@ -566,13 +1105,9 @@ public class Grid {
      * the given value
      */
     public Cell getFirstCancellerOf(Cell target, int value) {
-        for (Class<? extends Region> regionType : getRegionTypes()) {
-            Region region = getRegionAt(regionType, target.getX(), target.getY());
-            for (int i = 0; i < 16; i++) {
-                Cell cell = region.getCell(i);
-                if (!cell.equals(target) && cell.getValue() == value)
-                    return cell;
-            }
+        for (int peer : PEERS[target.getIndex()]) {
+            if (values[peer] == value)
+                return cells[peer];
         }
         return null;
     }
@@ -580,15 +1115,83 @@ public class Grid {
     /**
      * Copy the content of this grid to another grid.
      * The values of the cells and their potential values
-     * are copied.
+     * are copied. The undo journal of the other grid is ended, and the cells
+     * that differ are reported as changed by its change tracking.
      * @param other the grid to copy this grid to
      */
     public void copyTo(Grid other) {
-        for (int y = 0; y < 16; y++) {
-            for (int x = 0; x < 16; x++) {
-                this.cells[y][x].copyTo(other.cells[y][x]);
-            }
+        other.endJournal();
+        for (int i = 0; i < 256; i++) {
+            int changedValues = (potentials[i] ^ other.potentials[i]) & 0xFFFF;
+            if (values[i] != other.values[i])
+                changedValues |= valueBit(values[i]) | valueBit(other.values[i]);
+            if (changedValues != 0 || givens[i] != other.givens[i])
+                other.stamp(i, changedValues);
         }
+        System.arraycopy(this.values, 0, other.values, 0, 256);
+        System.arraycopy(this.potentials, 0, other.potentials, 0, 256);
+        System.arraycopy(this.givens, 0, other.givens, 0, 256);
+        System.arraycopy(this.planes, 0, other.planes, 0, this.planes.length);
+        System.arraycopy(this.positions, 0, other.positions, 0, this.positions.length);
+        other.fingerprint = this.fingerprint;
+        other.emptyCount = this.emptyCount;
+        System.arraycopy(this.regionEmptyCounts, 0, other.regionEmptyCounts, 0, 48);
+        System.arraycopy(this.regionValueCounts, 0, other.regionValueCounts, 0, 48 * 16);
+        System.arraycopy(this.valueCounts, 0, other.valueCounts, 0, 16);
+    }
+
+    /**
+     * Write the binary encoding of this grid to the given buffer, at its
+     * current position. Exactly {@link #ENCODED_SIZE} bytes are written:
+     * <ul>
+     * <li>256 shorts: the potential values mask of each cell, in the
+     * byte order of the buffer. Bit number <tt>(value - 1)</tt> is set if
+     * the value is a potential value of the cell
+     * <li>256 bytes: the value of each cell in bits 0 to 4, and the given
+     * flag of the cell in bit 7
+     * </ul>
+     * Cells are in index order (y * 16 + x).
+     * @param buffer the buffer to write to
+     * @throws BufferOverflowException if the buffer has less than
+     * {@link #ENCODED_SIZE} bytes remaining
+     * @see #readFrom(ByteBuffer)
+     */
+    public void writeTo(ByteBuffer buffer) {
+        if (buffer.remaining() < ENCODED_SIZE)
+            throw new BufferOverflowException();
+        buffer.asShortBuffer().put(potentials);
+        buffer.position(buffer.position() + 512);
+        for (int i = 0; i < 256; i++)
+            buffer.put((byte)(givens[i] ? values[i] | 0x80 : values[i]));
+    }
+
+    /**
+     * Read the cells of this grid from their binary encoding in the given
+     * buffer, at its current position. Exactly {@link #ENCODED_SIZE} bytes
+     * are read. The result of {@link #writeTo(ByteBuffer)} is read back
+     * without any loss.
+     * @param buffer the buffer to read from
+     * @throws BufferUnderflowException if the buffer has less than
+     * {@link #ENCODED_SIZE} bytes remaining
+     * @throws IllegalArgumentException if a cell has an invalid value. The
+     * buffer position is unchanged in that case.
+     */
+    public void readFrom(ByteBuffer buffer) {
+        if (buffer.remaining() < ENCODED_SIZE)
+            throw new BufferUnderflowException();
+        int start = buffer.position();
+        for (int i = 0; i < 256; i++) {
+            if ((buffer.get(start + 512 + i) & 0x7F) > 16)
+                throw new IllegalArgumentException("Invalid cell value");
+        }
+        ShortBuffer masks = buffer.asShortBuffer();
+        for (int i = 0; i < 256; i++) {
+            int cell = buffer.get(start + 512 + i);
+            setValueAt(i, cell & 0x1F);
+            setPotentialsAt(i, masks.get(i) & 0xFFFF);
+            setGivenAt(i, (cell & 0x80) != 0);
+        }
+        buffer.position(start + ENCODED_SIZE);
     }
 
     /**
@@ -597,14 +1200,17 @@ public class Grid {
      * @return the number of occurances of a given value in this grid
      */
     public int getCountOccurancesOfValue(int value) {
-        int result = 0;
-        for (int y = 0; y < 16; y++) {
-            for (int x = 0; x < 16; x++) {
-                if (cells[y][x].getValue() == value)
-                    result++;
-            }
-        }
-        return result;
+        if (value == 0)
+            return emptyCount;
+        return valueCounts[value - 1];
+    }
+
+    /**
+     * Get the number of empty cells of this grid
+     * @return the number of empty cells of this grid
+     */
+    public int getEmptyCellCount() {
+        return this.emptyCount;
     }
 
     /**
@@ -636,30 +1242,14 @@ public class Grid {
         if (!(o instanceof Grid))
             return false;
         Grid other = (Grid)o;
-        for (int y = 0; y < 16; y++) {
-            for (int x = 0; x < 16; x++) {
-                Cell thisCell = this.getCell(x, y);
-                Cell otherCell = other.getCell(x, y);
-                if (thisCell.getValue() != otherCell.getValue())
-                    return false;
-                if (!thisCell.getPotentialValues().equals(otherCell.getPotentialValues()))
-                    return false;
-            }
-        }
-        return true;
+        return this.fingerprint == other.fingerprint
+            && Arrays.equals(this.values, other.values)
+            && Arrays.equals(this.potentials, other.potentials);
     }
 
     @Override
     public int hashCode() {
-        int result = 0;
-        for (int y = 0; y < 16; y++) {
-            for (int x = 0; x < 16; x++) {
-                Cell cell = getCell(x, y);
-                result ^= cell.getValue();
-                result ^= cell.getPotentialValues().hashCode();
-            }
-        }
-        return result;
+        return (int)(fingerprint ^ (fingerprint >>> 32));
     }
 
 }
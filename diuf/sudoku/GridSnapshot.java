@@ -0,0 +1,88 @@
+/*
+ * Project: Sudoku Explainer
+ * Copyright (C) 2006-2007 Nicolas Juillerat
+ * Available under the terms of the Lesser General Public License (LGPL)
+ */
+package diuf.sudoku;
+
+/**
+ * An immutable snapshot of the cells of a grid: their values,
+ * potential values and given flags.
+ * <p>
+ * The cells are stored row by row. A snapshot taken from a grid
+ * shares the rows that did not change with a previous snapshot of
+ * the same grid, so that a history of snapshots (such as an undo
+ * stack) only costs memory for what changed between them.
+ */
+public final class GridSnapshot {
+
+    /*
+     * Each cell is packed in one int: potential values mask in bits
+     * 0 to 15, value in bits 16 to 20 and given flag in bit 21.
+     */
+    private static final int GIVEN = 1 << 21;
+
+    private final Grid grid; // The grid this snapshot was taken from
+    private final long changeCount; // The change count of that grid at that time
+    private final int[][] rows; // Packed cells, by row and column. Never modified
+
+    private GridSnapshot(Grid grid, long changeCount, int[][] rows) {
+        this.grid = grid;
+        this.changeCount = changeCount;
+        this.rows = rows;
+    }
+
+    /**
+     * Take a snapshot of the given grid.
+     * @param grid the grid
+     * @param previous a previous snapshot of the same grid, whose unchanged
+     * rows are shared by the new snapshot, or <tt>null</tt>
+     * @return the snapshot of the given grid
+     */
+    public static GridSnapshot take(Grid grid, GridSnapshot previous) {
+        long changedRows = ~0L;
+        if (previous != null && previous.grid == grid)
+            changedRows = grid.getChangedRegions(previous.changeCount) >>> 16;
+        int[][] rows = new int[16][];
+        for (int y = 0; y < 16; y++) {
+            if ((changedRows & (1L << y)) == 0) {
+                rows[y] = previous.rows[y];
+            } else {
+                int[] row = new int[16];
+                for (int x = 0; x < 16; x++)
+                    row[x] = pack(grid, y * 16 + x);
+                rows[y] = row;
+            }
+        }
+        return new GridSnapshot(grid, grid.getChangeCount(), rows);
+    }
+
+    private static int pack(Grid grid, int index) {
+        int result = grid.getPotentialMaskAt(index) | (grid.getValueAt(index) << 16);
+        if (grid.isGivenAt(index))
+            result |= GIVEN;
+        return result;
+    }
+
+    /**
+     * Restore the cells of the given grid to the state of this snapshot.
+     * Only the cells that differ are changed.
+     * @param grid the grid to restore. Usually the grid this snapshot
+     * was taken from.
+     */
+    public void restoreTo(Grid grid) {
+        for (int y = 0; y < 16; y++) {
+            int[] row = rows[y];
+            for (int x = 0; x < 16; x++) {
+                int index = y * 16 + x;
+                int cell = row[x];
+                if (pack(grid, index) != cell) {
+                    grid.setValueAt(index, (cell >> 16) & 0x1F);
+                    grid.setPotentialsAt(index, cell & 0xFFFF);
+                    grid.setGivenAt(index, (cell & GIVEN) != 0);
+                }
+            }
+        }
+    }
+
+}
@@ -9,6 +9,7 @@ import java.awt.*;
 import java.awt.event.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.Future;
 
 import javax.swing.*;
 import javax.swing.border.*;
@@ -65,7 +66,7 @@ public class GenerateDialog extends JDialog {
     private Difficulty difficulty = Difficulty.Diabolical;
     private boolean isExact = false;
 
-    private GeneratorThread generator = null;
+    private GeneratorTask generator = null;
     private List<Grid> sudokuList = new ArrayList<Grid>();
     private int sudokuIndex = 0;
     private Map<Grid, Hint> sudokuAnalyses = new HashMap<Grid, Hint>();
@@ -363,34 +364,49 @@ public class GenerateDialog extends JDialog {
         List<Symmetry> symList = new ArrayList<Symmetry>(symmetries);
 
         // Generate grid
-        generator = new GeneratorThread(symList, minDifficulty, maxDifficulty);
+        generator = new GeneratorTask(symList, minDifficulty, maxDifficulty);
         generator.start();
     }
 
     /**
-     * Thread that generates a mew grid.
+     * Task that generates a mew grid, run by the solver's executor.
      */
-    private class GeneratorThread extends Thread {
+    private class GeneratorTask implements Runnable {
 
         private final List<Symmetry> symmetries;
         private final double minDifficulty;
         private final double maxDifficulty;
 
-        private Generator generator;
+        private final Generator generator = new Generator();
+        private Future<?> future;
 
 
-        public GeneratorThread(List<Symmetry> symmetries, double minDifficulty, double maxDifficulty) {
+        public GeneratorTask(List<Symmetry> symmetries, double minDifficulty, double maxDifficulty) {
             this.symmetries = symmetries;
             this.minDifficulty = minDifficulty;
             this.maxDifficulty = maxDifficulty;
         }
 
-        @Override
+        public void start() {
+            future = SolverExecutor.getInstance().submit(this);
+        }
+
+        public boolean isAlive() {
+            return !future.isDone();
+        }
+
+        /**
+         * Stop the generation. If it has not started yet,
+         * it will end as soon as it starts.
+         */
         public void interrupt() {
             generator.interrupt();
         }
 
-        @Override
+        public void join() throws InterruptedException {
+            SolverExecutor.join(future);
+        }
+
         public void run() {
             SwingUtilities.invokeLater(new Runnable() {
                 public void run() {
@@ -400,7 +416,6 @@ public class GenerateDialog extends JDialog {
                     btnGenerate.setText("Stop");
                 }
             });
-            generator = new Generator();
             final Grid result = generator.generate(symmetries, minDifficulty, maxDifficulty);
             SwingUtilities.invokeLater(new Runnable() {
                 public void run() {
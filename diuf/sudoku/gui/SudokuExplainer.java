@@ -41,7 +41,7 @@ public class SudokuExplainer {
     private List<Hint> filteredHints = null; // All hints (filtered)
     private boolean isFiltered = true;
     private List<Hint> selectedHints = new ArrayList<Hint>(); // Currently selected hint
-    private Stack<Grid> gridStack = new Stack<Grid>(); // Stack for undo
+    private Stack<GridSnapshot> gridStack = new Stack<GridSnapshot>(); // Stack for undo
 
     // Cache for filter
     Set<Cell> givenCells = new HashSet<Cell>(); // Cell values already encountered
@@ -51,7 +51,7 @@ public class SudokuExplainer {
     public SudokuExplainer() {
         grid = new Grid();
         savedgrid = new Grid();
-        gridStack = new Stack<Grid>();
+        gridStack = new Stack<GridSnapshot>();
         solver = new Solver(grid);
         solver.rebuildPotentialValues();
         frame = new SudokuFrame();
@@ -296,7 +296,7 @@ public class SudokuExplainer {
     public void clearGrid() {
         grid = new Grid();
         savedgrid = new Grid();
-        gridStack = new Stack<Grid>();
+        gridStack = new Stack<GridSnapshot>();
         solver = new Solver(grid);
         solver.rebuildPotentialValues();
         panel.setSudokuGrid(grid);
@@ -317,7 +317,7 @@ public class SudokuExplainer {
             if ( solver.isSolved() ||
                 JOptionPane.showConfirmDialog(frame, "Restart, Are you sure?", "Restart", JOptionPane.OK_CANCEL_OPTION) == JOptionPane.OK_OPTION ) {
                 savedgrid.copyTo(grid);
-                gridStack = new Stack<Grid>();
+                gridStack = new Stack<GridSnapshot>();
 
                 solver = new Solver(grid);
             //  solver.rebuildPotentialValues();
@@ -332,7 +332,7 @@ public class SudokuExplainer {
 
     public void setGrid(Grid grid) {
         this.grid = grid;
-        gridStack = new Stack<Grid>();
+        gridStack = new Stack<GridSnapshot>();
         solver = new Solver(grid);
         solver.rebuildPotentialValues();
         grid.copyTo(savedgrid);
@@ -344,7 +344,7 @@ public class SudokuExplainer {
 
     public void newGrid(Grid grid) {
         this.grid = grid;
-        gridStack = new Stack<Grid>();
+        gridStack = new Stack<GridSnapshot>();
         solver = new Solver(grid);
         solver.rebuildPotentialValues();
         grid.copyTo(savedgrid);
@@ -450,10 +450,10 @@ public class SudokuExplainer {
             /*
              * Trick: gatherHints will get all the hints it can find, one after
              * the other, sorted by difficulty. It will call add() for every hint.
-             * To get only the first hint, we throw an InterruptedException after the
+             * To get only the first hint, we ask to stop after the
              * first produced hint that was not filtered.
              */
-            public void add(Hint hint) throws InterruptedException {
+            public boolean add(Hint hint) {
                 if (!buffer.contains(hint)) {
                     buffer.add(hint);
                     boolean isNew = (buffer.size() > unfilteredHints.size());
@@ -461,10 +461,11 @@ public class SudokuExplainer {
                         unfilteredHints.add(hint); // This hint is new for the unfiltered list
                         if (isWorth(hint)) {
                             newHint.setValue(hint);
-                            throw new InterruptedException();
+                            return false;
                         }
                     }
                 }
+                return true;
             }
         }, frame);
         selectedHints.clear();
@@ -566,15 +567,14 @@ public class SudokuExplainer {
     }
 
     private void pushGrid() {
-        Grid copy = new Grid();
-        this.grid.copyTo(copy);
-        this.gridStack.push(copy);
+        GridSnapshot previous = (this.gridStack.isEmpty() ? null : this.gridStack.peek());
+        this.gridStack.push(GridSnapshot.take(this.grid, previous));
     }
 
     private void popGrid() {
         if (!this.gridStack.isEmpty()) {
-            Grid prev = this.gridStack.pop();
-            prev.copyTo(this.grid);
+            GridSnapshot prev = this.gridStack.pop();
+            prev.restoreTo(this.grid);
         //  this.solver.rebuildPotentialValues();
             clearHints();
             repaintAll();
@@ -623,7 +623,7 @@ public class SudokuExplainer {
         ErrorMessage message = SudokuIO.loadFromClipboard(grid);
         if (message == null || !message.isFatal()) {
             solver.rebuildPotentialValues();
-            gridStack = new Stack<Grid>();
+            gridStack = new Stack<GridSnapshot>();
             grid.copyTo(savedgrid);
         }
         else {
@@ -645,7 +645,7 @@ public class SudokuExplainer {
         ErrorMessage message = SudokuIO.loadFromFile(grid, file);
         if (message == null || !message.isFatal()) {
             solver.rebuildPotentialValues();
-            gridStack = new Stack<Grid>();
+            gridStack = new Stack<GridSnapshot>();
             grid.copyTo(savedgrid);
         }
         else {
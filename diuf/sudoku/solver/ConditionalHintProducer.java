@@ -0,0 +1,25 @@
+/*
+ * Project: Sudoku Explainer
+ * Copyright (C) 2006-2009 Nicolas Juillerat
+ * Available under the terms of the Lesser General Public License (LGPL)
+ */
+package diuf.sudoku.solver;
+
+/**
+ * Interface for hint producers that can rule out any hint from the
+ * profile of the grid alone, before searching.
+ * <p>
+ * The condition must be necessary: a producer must never find a hint in
+ * a grid whose profile does not satisfy it, so that skipping it does not
+ * change the hints that are found.
+ */
+public interface ConditionalHintProducer extends HintProducer {
+
+    /**
+     * Get whether this producer may find hints in a grid with the given profile
+     * @param profile the profile of the grid
+     * @return <tt>false</tt> if this producer cannot find any hint in the grid
+     */
+    public boolean isPossible(GridProfile profile);
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Project: Sudoku Explainer
+ * Copyright (C) 2006-2009 Nicolas Juillerat
+ * Available under the terms of the Lesser General Public License (LGPL)
+ */
+package diuf.sudoku.solver;
+
+/**
+ * A deadline for a search for hints, which can also be cancelled
+ * before it expires.
+ * <p>
+ * The deadline is not passed to the producers: it is set as the current
+ * deadline of the thread running them (see {@link #setCurrent(Deadline)}),
+ * and the long running loops of the producers call {@link #check()}.
+ * Code running producers in other threads must set the deadline of
+ * these threads as well.
+ */
+public class Deadline {
+
+    private static final ThreadLocal<Deadline> current = new ThreadLocal<Deadline>();
+
+    private final Deadline parent;
+    private final boolean isTimed;
+    private final long expiryNanos;
+    private volatile boolean isExpired = false;
+
+    /**
+     * Create a new deadline, expiring in the given time
+     * @param timeoutMillis the time before the deadline expires, in milliseconds
+     */
+    public Deadline(long timeoutMillis) {
+        this.parent = null;
+        this.isTimed = true;
+        this.expiryNanos = System.nanoTime() + timeoutMillis * 1000000L;
+    }
+
+    /**
+     * Create a new deadline, expiring with the given one. It can be
+     * cancelled without cancelling the given one.
+     * @param parent the deadline to expire with, or <tt>null</tt> for a
+     * deadline that only expires when cancelled
+     */
+    public Deadline(Deadline parent) {
+        this.parent = parent;
+        this.isTimed = false;
+        this.expiryNanos = 0;
+    }
+
+    /**
+     * Expire this deadline now.
+     */
+    public void cancel() {
+        this.isExpired = true;
+    }
+
+    /**
+     * Test whether this deadline is expired, or was cancelled
+     * @return whether this deadline is expired
+     */
+    public boolean isExpired() {
+        if (!isExpired && ((isTimed && System.nanoTime() - expiryNanos >= 0)
+                || (parent != null && parent.isExpired())))
+            isExpired = true;
+        return isExpired;
+    }
+
+    /**
+     * Get the current deadline of the calling thread
+     * @return the current deadline, or <tt>null</tt> if there is none
+     */
+    public static Deadline getCurrent() {
+        return current.get();
+    }
+
+    /**
+     * Set the current deadline of the calling thread
+     * @param deadline the new current deadline, or <tt>null</tt> for none
+     */
+    public static void setCurrent(Deadline deadline) {
+        if (deadline == null)
+            current.remove();
+        else
+            current.set(deadline);
+    }
+
+    /**
+     * Check the current deadline of the calling thread.
+     * @throws InterruptedException if the current deadline is expired.
+     * Like for {@link HintsAccumulator#add(Hint)}, producers must not
+     * catch this exception.
+     */
+    public static void check() throws InterruptedException {
+        Deadline deadline = current.get();
+        if (deadline != null && deadline.isExpired())
+            throw new InterruptedException("Deadline expired");
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Project: Sudoku Explainer
+ * Copyright (C) 2006-2009 Nicolas Juillerat
+ * Available under the terms of the Lesser General Public License (LGPL)
+ */
+package diuf.sudoku.solver;
+
+import diuf.sudoku.*;
+
+/**
+ * A few counts summarizing the state of a grid, computed once per
+ * solving step, so that producers can tell whether they may find anything
+ * without searching.
+ * @see ConditionalHintProducer
+ */
+public class GridProfile {
+
+    private final Grid grid;
+    private final long changeCount;
+    private final int[] cardinalityCounts = new int[17];
+    private int maxEmptyCellCount = 0;
+    private int maxMissingCount = 0;
+
+    /**
+     * Create the profile of the current state of the given grid
+     * @param grid the grid
+     */
+    public GridProfile(Grid grid) {
+        this.grid = grid;
+        this.changeCount = grid.getChangeCount();
+        for (int i = 0; i < 256; i++)
+            cardinalityCounts[Integer.bitCount(grid.getPotentialMaskAt(i))]++;
+        for (int regionType = Grid.BLOCK; regionType <= Grid.COLUMN; regionType++) {
+            for (Grid.Region region : grid.getRegions(regionType)) {
+                int count = region.getEmptyCellCount();
+                if (count > maxEmptyCellCount)
+                    maxEmptyCellCount = count;
+            }
+        }
+        for (int value = 1; value <= 16; value++) {
+            int count = 16 - grid.getCountOccurancesOfValue(value);
+            if (count > maxMissingCount)
+                maxMissingCount = count;
+        }
+    }
+
+    /**
+     * Get whether this profile is the one of the given grid in its current state
+     * @param grid the grid
+     * @return whether this profile is up to date for the given grid
+     */
+    public boolean isProfileOf(Grid grid) {
+        return this.grid == grid && this.changeCount == grid.getChangeCount();
+    }
+
+    /**
+     * Get the number of cells with the given number of potential values
+     * @param cardinality the number of potential values, from 0 to 16
+     * @return the number of cells with that many potential values
+     */
+    public int getCellCount(int cardinality) {
+        return cardinalityCounts[cardinality];
+    }
+
+    /**
+     * Get the number of cells with at least the given number of potential values
+     * @param cardinality the minimal number of potential values, from 0 to 16
+     * @return the number of cells with that many potential values or more
+     */
+    public int getCellCountFrom(int cardinality) {
+        int result = 0;
+        for (int i = cardinality; i <= 16; i++)
+            result += cardinalityCounts[i];
+        return result;
+    }
+
+    /**
+     * Get the greatest number of empty cells of a region
+     * @return the greatest number of empty cells of a region
+     */
+    public int getMaxEmptyCellCount() {
+        return this.maxEmptyCellCount;
+    }
+
+    /**
+     * Get the greatest number of missing occurrences of a value,
+     * that is, of cells not filled with it yet
+     * @return the greatest number of missing occurrences of a value
+     */
+    public int getMaxMissingCount() {
+        return this.maxMissingCount;
+    }
+
+}
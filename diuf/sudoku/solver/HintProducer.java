@@ -17,7 +17,9 @@ public interface HintProducer {
      * Get all the hints that applicable of the given grid according to
      * this solving technique.
      * @param grid the sudoku grid
-     * @param accu the accumulator in which to add hints
+     * @param accu the accumulator in which to add hints. The search
+     * must stop as soon as {@link HintsAccumulator#add(Hint)} returns
+     * <tt>false</tt>.
      * @throws InterruptedException if the search for hints has been interrupted.
      * This exception might be thrown by the accumulator and you must not try
      * to catch it.
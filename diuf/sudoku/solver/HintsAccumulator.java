@@ -7,17 +7,21 @@ package diuf.sudoku.solver;
 
 /**
  * Accumulator for hints.
- * The accumulator can choose to throw an <tt>InterruptedException</tt>
- * whenever it has gathered enough hints.
+ * The accumulator tells the producer, on each added hint, whether it has
+ * gathered enough hints. An <tt>InterruptedException</tt> is only used
+ * when the search for hints is cancelled.
  */
 public interface HintsAccumulator {
 
     /**
      * Add an hint to this accumulator
      * @param hint the hint to add
-     * @throws InterruptedException if this accumulator want to
-     * stop the gathering of hints. You must not catch this exception.
+     * @return whether the producer should go on searching for hints.
+     * If <tt>false</tt> is returned, the producer must return as soon
+     * as possible, without adding any other hint.
+     * @throws InterruptedException if the search for hints has been
+     * cancelled. You must not catch this exception.
      */
-    public void add(Hint hint) throws InterruptedException;
+    public boolean add(Hint hint) throws InterruptedException;
 
 }
@@ -0,0 +1,34 @@
+/*
+ * Project: Sudoku Explainer
+ * Copyright (C) 2006-2007 Nicolas Juillerat
+ * Available under the terms of the Lesser General Public License (LGPL)
+ */
+package diuf.sudoku.solver;
+
+import diuf.sudoku.*;
+
+/**
+ * Interface for hint producers whose search can be restricted to
+ * what changed in the grid since a previous search found no hint.
+ * <p>
+ * The hints of such a producer must only depend on the content of
+ * parts of the grid that {@link Grid} tracks the changes of (the regions,
+ * or the values), so that a part left unchanged cannot hold a new hint.
+ * @see Grid#getChangeCount()
+ */
+public interface IncrementalHintProducer extends HintProducer {
+
+    /**
+     * Get the hints of the given grid, knowing that there were none
+     * when the grid's change count was the given checkpoint. Only the parts
+     * of the grid that changed since then are searched. The hints are added
+     * in the same order as by {@link #getHints(Grid, HintsAccumulator)}.
+     * @param grid the sudoku grid
+     * @param checkpoint the value of {@link Grid#getChangeCount()} when a
+     * search for hints in the same grid found nothing
+     * @param accu the accumulator in which to add hints
+     * @throws InterruptedException if the search for hints has been interrupted
+     */
+    public void getHints(Grid grid, long checkpoint, HintsAccumulator accu) throws InterruptedException;
+
+}
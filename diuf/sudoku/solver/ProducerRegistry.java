@@ -0,0 +1,135 @@
+/*
+ * Project: Sudoku Explainer
+ * Copyright (C) 2006-2009 Nicolas Juillerat
+ * Available under the terms of the Lesser General Public License (LGPL)
+ */
+package diuf.sudoku.solver;
+
+import java.util.*;
+
+import diuf.sudoku.*;
+import diuf.sudoku.solver.checks.*;
+import diuf.sudoku.solver.rules.*;
+import diuf.sudoku.solver.rules.chaining.*;
+import diuf.sudoku.solver.rules.unique.*;
+
+/**
+ * The hint producers used by a {@link Solver}, for a given set of
+ * solving techniques.
+ * <p>
+ * The producers keep no state between two searches for hints, so a
+ * registry is built once and shared by all the solvers, in any thread.
+ * @see #getInstance()
+ */
+public class ProducerRegistry {
+
+    private static ProducerRegistry instance = null;
+
+    private final EnumSet<SolvingTechnique> techniques;
+    final List<HintProducer> directHintProducers;
+    final List<IndirectHintProducer> indirectHintProducers;
+    final List<WarningHintProducer> validatorHintProducers;
+    final List<WarningHintProducer> warningHintProducers;
+    final List<WarningHintProducer> UniqueSolutionHintProducers;
+    final List<IndirectHintProducer> chainingHintProducers;
+    final List<IndirectHintProducer> chainingHintProducers2;
+    final List<IndirectHintProducer> advancedHintProducers;
+    final List<IndirectHintProducer> experimentalHintProducers;
+
+    /**
+     * Get the registry of the techniques currently selected in the
+     * settings. The registry is only built again if the selected
+     * techniques changed.
+     * @return the registry of the selected techniques
+     */
+    public static synchronized ProducerRegistry getInstance() {
+        EnumSet<SolvingTechnique> techniques = Settings.getInstance().getTechniques();
+        if (instance == null || !instance.techniques.equals(techniques))
+            instance = new ProducerRegistry(techniques);
+        return instance;
+    }
+
+    private void addIfWorth(SolvingTechnique technique, Collection<HintProducer> coll, HintProducer producer) {
+        if (techniques.contains(technique))
+            coll.add(producer);
+    }
+
+    private void addIfWorth(SolvingTechnique technique, Collection<IndirectHintProducer> coll, IndirectHintProducer producer) {
+        if (techniques.contains(technique))
+            coll.add(producer);
+    }
+
+    /**
+     * Create the producers of the given techniques
+     * @param techniques the solving techniques to use
+     */
+    public ProducerRegistry(EnumSet<SolvingTechnique> techniques) {
+        this.techniques = EnumSet.copyOf(techniques);
+        directHintProducers = new ArrayList<HintProducer>();
+        addIfWorth(SolvingTechnique.HiddenSingle, directHintProducers, new HiddenSingle());
+        addIfWorth(SolvingTechnique.DirectPointing, directHintProducers, new Locking(true));
+        addIfWorth(SolvingTechnique.DirectHiddenPair, directHintProducers, new HiddenSet(2, true));
+        addIfWorth(SolvingTechnique.NakedSingle, directHintProducers, new NakedSingle());
+        addIfWorth(SolvingTechnique.DirectHiddenTriplet, directHintProducers, new HiddenSet(3, true));
+        indirectHintProducers = new ArrayList<IndirectHintProducer>();
+        addIfWorth(SolvingTechnique.PointingClaiming, indirectHintProducers, new Locking(false));
+        addIfWorth(SolvingTechnique.NakedPair, indirectHintProducers, new NakedSet(2));
+        addIfWorth(SolvingTechnique.XWing, indirectHintProducers, new Fisherman(2));
+        addIfWorth(SolvingTechnique.HiddenPair, indirectHintProducers, new HiddenSet(2, false));
+        addIfWorth(SolvingTechnique.NakedTriplet, indirectHintProducers, new NakedSet(3));
+        addIfWorth(SolvingTechnique.Swordfish, indirectHintProducers, new Fisherman(3));
+        addIfWorth(SolvingTechnique.HiddenTriplet, indirectHintProducers, new HiddenSet(3, false));
+        addIfWorth(SolvingTechnique.XYWing, indirectHintProducers, new XYWing(false));
+        addIfWorth(SolvingTechnique.DirectHiddenQuad, indirectHintProducers, new HiddenSet(4, true));
+        addIfWorth(SolvingTechnique.XYZWing, indirectHintProducers, new XYWing(true));
+        addIfWorth(SolvingTechnique.UniqueLoop, indirectHintProducers, new UniqueLoops());
+        addIfWorth(SolvingTechnique.NakedQuad, indirectHintProducers, new NakedSet(4));
+        addIfWorth(SolvingTechnique.Jellyfish, indirectHintProducers, new Fisherman(4));
+        addIfWorth(SolvingTechnique.HiddenQuad, indirectHintProducers, new HiddenSet(4, false));
+
+        addIfWorth(SolvingTechnique.NakedQuintuplet, indirectHintProducers, new NakedSet(5));
+        addIfWorth(SolvingTechnique.HiddenQuintuplet, indirectHintProducers, new HiddenSet(5, false));
+        addIfWorth(SolvingTechnique.NakedSextuplet, indirectHintProducers, new NakedSet(6));
+        addIfWorth(SolvingTechnique.HiddenSextuplet, indirectHintProducers, new HiddenSet(6, false));
+        addIfWorth(SolvingTechnique.NakedSeptuplet, indirectHintProducers, new NakedSet(7));
+        addIfWorth(SolvingTechnique.HiddenSeptuplet, indirectHintProducers, new HiddenSet(7, false));
+
+        addIfWorth(SolvingTechnique.Starfish, indirectHintProducers, new Fisherman(5));
+        addIfWorth(SolvingTechnique.Whale, indirectHintProducers, new Fisherman(6));
+        addIfWorth(SolvingTechnique.Leviathan, indirectHintProducers, new Fisherman(7));
+
+        addIfWorth(SolvingTechnique.NakedOctuplet, indirectHintProducers, new NakedSet(8));
+        // Would need more than 16 empty cells: always skipped, the naked octuplets cover it
+        addIfWorth(SolvingTechnique.HiddenOctuplet, indirectHintProducers, new HiddenSet(8, false));
+        addIfWorth(SolvingTechnique.LochNessMonster, indirectHintProducers, new Fisherman(8));
+
+        addIfWorth(SolvingTechnique.BivalueUniversalGrave, indirectHintProducers, new BivalueUniversalGrave());
+        addIfWorth(SolvingTechnique.AlignedPairExclusion, indirectHintProducers, new AlignedPairExclusion());
+        chainingHintProducers = new ArrayList<IndirectHintProducer>();
+        addIfWorth(SolvingTechnique.ForcingChainCycle, chainingHintProducers, new Chaining(false, false, false, 0, true, 0));
+        addIfWorth(SolvingTechnique.AlignedTripletExclusion, chainingHintProducers, new AlignedExclusion(3));
+        addIfWorth(SolvingTechnique.NishioForcingChain, chainingHintProducers, new Chaining(false, true, true, 0, true, 0));
+        addIfWorth(SolvingTechnique.MultipleForcingChain, chainingHintProducers, new Chaining(true, false, false, 0, true, 0));
+        addIfWorth(SolvingTechnique.DynamicForcingChain, chainingHintProducers, new Chaining(true, true, false, 0, true, 0));
+        chainingHintProducers2 = new ArrayList<IndirectHintProducer>();
+        addIfWorth(SolvingTechnique.DynamicForcingChainPlus, chainingHintProducers2, new Chaining(true, true, false, 1, true, 0));
+        // These rules are not really solving techs. They check the validity of the puzzle
+        validatorHintProducers = new ArrayList<WarningHintProducer>();
+        validatorHintProducers.add(new NoDoubles());
+        warningHintProducers = new ArrayList<WarningHintProducer>();
+        warningHintProducers.add(new NumberOfFilledCells());
+        warningHintProducers.add(new NumberOfValues());
+        warningHintProducers.add(new BruteForceAnalysis(false));
+        UniqueSolutionHintProducers = new ArrayList<WarningHintProducer>();
+        UniqueSolutionHintProducers.add(new BruteForceAnalysis(false));
+        // These are very slow. We add them only as "rescue"
+        advancedHintProducers = new ArrayList<IndirectHintProducer>();
+        addIfWorth(SolvingTechnique.NestedForcingChain, advancedHintProducers, new Chaining(true, true, false, 2, true, 0));
+        addIfWorth(SolvingTechnique.NestedForcingChain, advancedHintProducers, new Chaining(true, true, false, 3, true, 0));
+        experimentalHintProducers = new ArrayList<IndirectHintProducer>(); // Two levels of nesting !?
+        addIfWorth(SolvingTechnique.NestedForcingChain, experimentalHintProducers, new Chaining(true, true, false, 4, true, 0));
+        addIfWorth(SolvingTechnique.NestedForcingChain, experimentalHintProducers, new Chaining(true, true, false, 4, true, 1));
+        addIfWorth(SolvingTechnique.NestedForcingChain, experimentalHintProducers, new Chaining(true, true, false, 4, true, 2));
+    }
+
+}
@@ -17,11 +17,10 @@ public class SingleHintAccumulator implements HintsAccumulator {
         super();
     }
 
-    public void add(Hint hint) throws InterruptedException {
-        if (!hint.equals(result)) {
+    public boolean add(Hint hint) {
+        if (result == null)
             result = hint;
-            throw new InterruptedException();
-        }
+        return false;
     }
 
     /**
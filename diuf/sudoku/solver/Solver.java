@@ -5,14 +5,12 @@
  */
 package diuf.sudoku.solver;
 
-import java.security.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import diuf.sudoku.*;
 import diuf.sudoku.solver.checks.*;
 import diuf.sudoku.solver.rules.*;
-import diuf.sudoku.solver.rules.chaining.*;
-import diuf.sudoku.solver.rules.unique.*;
 import diuf.sudoku.tools.*;
 
 /**
@@ -53,18 +51,38 @@ public class Solver {
     public char want;
 
     private Grid grid;
-    private List<HintProducer> directHintProducers;
-    private List<IndirectHintProducer> indirectHintProducers;
-    private List<WarningHintProducer> validatorHintProducers;
-    private List<WarningHintProducer> warningHintProducers;
-    private List<WarningHintProducer> UniqueSolutionHintProducers;
-    private List<IndirectHintProducer> chainingHintProducers;
-    private List<IndirectHintProducer> chainingHintProducers2;
-    private List<IndirectHintProducer> advancedHintProducers;
-    private List<IndirectHintProducer> experimentalHintProducers;
+    private final List<HintProducer> directHintProducers;
+    private final List<IndirectHintProducer> indirectHintProducers;
+    private final List<WarningHintProducer> validatorHintProducers;
+    private final List<WarningHintProducer> warningHintProducers;
+    private final List<WarningHintProducer> UniqueSolutionHintProducers;
+    private final List<IndirectHintProducer> chainingHintProducers;
+    private final List<IndirectHintProducer> chainingHintProducers2;
+    private final List<IndirectHintProducer> advancedHintProducers;
+    private final List<IndirectHintProducer> experimentalHintProducers;
 
     private boolean isUsingAdvanced = false;
 
+    /**
+     * For each incremental producer, the change count of the grid when
+     * the producer last found no hint
+     */
+    private final Map<HintProducer,Long> emptyCheckpoints = new HashMap<HintProducer,Long>();
+
+    /**
+     * Profile of the grid, recomputed when the grid changes
+     */
+    private GridProfile profile = null;
+
+    /**
+     * Number of consecutive producers searching for a hint concurrently
+     */
+    private int parallelism = 1;
+    private final Map<HintProducer,Racer> racers = new HashMap<HintProducer,Racer>();
+
+    private Deadline deadline = null;
+    private boolean isTimedOut = false;
+    private boolean isBatchingSingles = false;
 
     private class DefaultHintsAccumulator implements HintsAccumulator {
 
@@ -75,99 +93,220 @@ public class Solver {
             this.result = result;
         }
 
-        public void add(Hint hint) throws InterruptedException {
+        public boolean add(Hint hint) throws InterruptedException {
             if (!result.contains(hint))
                 result.add(hint);
+            return true;
         }
 
     } // class DefaultHintsAccumulator
 
-    private void addIfWorth(SolvingTechnique technique, Collection<HintProducer> coll, HintProducer producer) {
-        if (Settings.getInstance().getTechniques().contains(technique))
-            coll.add(producer);
-    }
+    /**
+     * Accumulator forwarding hints to another accumulator, and remembering
+     * whether the latter asked to stop the gathering of hints.
+     */
+    private static class StoppableHintsAccumulator implements HintsAccumulator {
 
-    private void addIfWorth(SolvingTechnique technique, Collection<IndirectHintProducer> coll, IndirectHintProducer producer) {
-        if (Settings.getInstance().getTechniques().contains(technique))
-            coll.add(producer);
-    }
+        private final HintsAccumulator target;
+        private boolean isStopped = false;
+
+        private StoppableHintsAccumulator(HintsAccumulator target) {
+            super();
+            this.target = target;
+        }
+
+        public boolean add(Hint hint) throws InterruptedException {
+            if (!isStopped && !target.add(hint))
+                isStopped = true;
+            return !isStopped;
+        }
+
+        public boolean isStopped() {
+            return this.isStopped;
+        }
 
+    } // class StoppableHintsAccumulator
+
+    /**
+     * Search for the first hint of a producer in a private copy of the grid,
+     * so that several producers can search at once.
+     * <p>
+     * The copy is kept from one step to the next. As {@link Grid#copyTo(Grid)}
+     * only stamps the cells that differ, the change count of the copy can be
+     * used as a checkpoint for {@link IncrementalHintProducer}s, as done by
+     * {@link Solver#findHint(List, SingleHintAccumulator)} on the solver's grid.
+     */
+    private static class Racer implements Callable<Hint>, HintsAccumulator {
+
+        private final HintProducer producer;
+        private final Grid grid = new Grid();
+        private long checkpoint = -1;
+        private Deadline deadline;
+        private volatile boolean isCancelled;
+        private Future<Hint> future;
+        private Hint result;
+
+        private Racer(HintProducer producer) {
+            super();
+            this.producer = producer;
+        }
+
+        /**
+         * Start searching the given grid. Waits for the previous search
+         * to end first, as it is still using the copy if it was cancelled.
+         */
+        private void start(Grid source) throws InterruptedException {
+            join();
+            source.copyTo(grid);
+            deadline = new Deadline(Deadline.getCurrent());
+            isCancelled = false;
+            future = SolverExecutor.getInstance().submit(this);
+        }
+
+        /**
+         * Wait for the end of the search.
+         * @return the first hint found, or <tt>null</tt> if none was found
+         * or the search was cancelled
+         */
+        private Hint join() throws InterruptedException {
+            if (future == null)
+                return null;
+            try {
+                return SolverExecutor.join(future);
+            } catch (InterruptedException ex) {
+                if (isCancelled)
+                    return null;
+                throw ex;
+            } finally {
+                future = null;
+            }
+        }
+
+        /**
+         * Stop the search at the next check of its deadline by the producer,
+         * or as soon as the producer adds a hint.
+         */
+        private void cancel() {
+            isCancelled = true;
+            if (deadline != null)
+                deadline.cancel();
+        }
+
+        public Hint call() throws InterruptedException {
+            result = null;
+            if (isCancelled)
+                return null; // Not started before being cancelled
+            long changeCount = grid.getChangeCount();
+            Deadline previous = Deadline.getCurrent();
+            Deadline.setCurrent(deadline);
+            try {
+                if (producer instanceof IncrementalHintProducer && checkpoint >= 0) {
+                    if (checkpoint != changeCount)
+                        ((IncrementalHintProducer)producer).getHints(grid, checkpoint, this);
+                } else {
+                    producer.getHints(grid, this);
+                }
+            } finally {
+                Deadline.setCurrent(previous);
+            }
+            if (result == null)
+                checkpoint = changeCount;
+            return result;
+        }
+
+        public boolean add(Hint hint) throws InterruptedException {
+            if (isCancelled)
+                throw new InterruptedException();
+            if (result == null)
+                result = hint;
+            return false;
+        }
+
+    } // class Racer
+
+    /**
+     * Iterator on the steps of the solving of the grid.
+     * @see Solver#getSteps()
+     */
+    private class StepIterator implements Iterator<Hint> {
+
+        private Hint next = null;
+        private boolean isDone = false;
+
+        public boolean hasNext() {
+            if (next == null && !isDone) {
+                if (isSolved())
+                    isDone = true;
+                else {
+                    Deadline oldDeadline = Deadline.getCurrent();
+                    if (deadline != null)
+                        Deadline.setCurrent(deadline);
+                    try {
+                        next = findStepHint(true);
+                    } finally {
+                        Deadline.setCurrent(oldDeadline);
+                    }
+                    if (next == null) {
+                        isDone = true;
+                        isTimedOut = (deadline != null && deadline.isExpired());
+                    }
+                }
+            }
+            return next != null;
+        }
+
+        public Hint next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            Hint result = next;
+            next = null;
+            result.apply(grid);
+            return result;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+    } // class StepIterator
+
+    /**
+     * Create a new solver for the given grid, using the producers of the
+     * techniques currently selected in the settings.
+     * @param grid the grid to solve
+     */
     public Solver(Grid grid) {
+        this(grid, ProducerRegistry.getInstance());
+    }
+
+    /**
+     * Create a new solver for the given grid, using the given producers.
+     * A registry can be shared by any number of solvers, including
+     * solvers used by different threads at the same time.
+     * @param grid the grid to solve
+     * @param registry the hint producers to use
+     */
+    public Solver(Grid grid, ProducerRegistry registry) {
         this.grid = grid;
-        directHintProducers = new ArrayList<HintProducer>();
-        addIfWorth(SolvingTechnique.HiddenSingle, directHintProducers, new HiddenSingle());
-        addIfWorth(SolvingTechnique.DirectPointing, directHintProducers, new Locking(true));
-        addIfWorth(SolvingTechnique.DirectHiddenPair, directHintProducers, new HiddenSet(2, true));
-        addIfWorth(SolvingTechnique.NakedSingle, directHintProducers, new NakedSingle());
-        addIfWorth(SolvingTechnique.DirectHiddenTriplet, directHintProducers, new HiddenSet(3, true));
-        indirectHintProducers = new ArrayList<IndirectHintProducer>();
-        addIfWorth(SolvingTechnique.PointingClaiming, indirectHintProducers, new Locking(false));
-        addIfWorth(SolvingTechnique.NakedPair, indirectHintProducers, new NakedSet(2));
-        addIfWorth(SolvingTechnique.XWing, indirectHintProducers, new Fisherman(2));
-        addIfWorth(SolvingTechnique.HiddenPair, indirectHintProducers, new HiddenSet(2, false));
-        addIfWorth(SolvingTechnique.NakedTriplet, indirectHintProducers, new NakedSet(3));
-        addIfWorth(SolvingTechnique.Swordfish, indirectHintProducers, new Fisherman(3));
-        addIfWorth(SolvingTechnique.HiddenTriplet, indirectHintProducers, new HiddenSet(3, false));
-        addIfWorth(SolvingTechnique.XYWing, indirectHintProducers, new XYWing(false));
-        addIfWorth(SolvingTechnique.DirectHiddenQuad, indirectHintProducers, new HiddenSet(4, true));
-        addIfWorth(SolvingTechnique.XYZWing, indirectHintProducers, new XYWing(true));
-        addIfWorth(SolvingTechnique.UniqueLoop, indirectHintProducers, new UniqueLoops());
-        addIfWorth(SolvingTechnique.NakedQuad, indirectHintProducers, new NakedSet(4));
-        addIfWorth(SolvingTechnique.Jellyfish, indirectHintProducers, new Fisherman(4));
-        addIfWorth(SolvingTechnique.HiddenQuad, indirectHintProducers, new HiddenSet(4, false));
-
-        addIfWorth(SolvingTechnique.NakedQuintuplet, indirectHintProducers, new NakedSet(5));
-        addIfWorth(SolvingTechnique.HiddenQuintuplet, indirectHintProducers, new HiddenSet(5, false));
-        addIfWorth(SolvingTechnique.NakedSextuplet, indirectHintProducers, new NakedSet(6));
-        addIfWorth(SolvingTechnique.HiddenSextuplet, indirectHintProducers, new HiddenSet(6, false));
-        addIfWorth(SolvingTechnique.NakedSeptuplet, indirectHintProducers, new NakedSet(7));
-        addIfWorth(SolvingTechnique.HiddenSeptuplet, indirectHintProducers, new HiddenSet(7, false));
-
-        addIfWorth(SolvingTechnique.Starfish, indirectHintProducers, new Fisherman(5));
-        addIfWorth(SolvingTechnique.Whale, indirectHintProducers, new Fisherman(6));
-        addIfWorth(SolvingTechnique.Leviathan, indirectHintProducers, new Fisherman(7));
-
-        addIfWorth(SolvingTechnique.NakedOctuplet, indirectHintProducers, new NakedSet(8));
-        addIfWorth(SolvingTechnique.HiddenOctuplet, indirectHintProducers, new HiddenSet(8, false));
-        addIfWorth(SolvingTechnique.LochNessMonster, indirectHintProducers, new Fisherman(8));
-
-        addIfWorth(SolvingTechnique.BivalueUniversalGrave, indirectHintProducers, new BivalueUniversalGrave());
-        addIfWorth(SolvingTechnique.AlignedPairExclusion, indirectHintProducers, new AlignedPairExclusion());
-        chainingHintProducers = new ArrayList<IndirectHintProducer>();
-        addIfWorth(SolvingTechnique.ForcingChainCycle, chainingHintProducers, new Chaining(false, false, false, 0, true, 0));
-        addIfWorth(SolvingTechnique.AlignedTripletExclusion, chainingHintProducers, new AlignedExclusion(3));
-        addIfWorth(SolvingTechnique.NishioForcingChain, chainingHintProducers, new Chaining(false, true, true, 0, true, 0));
-        addIfWorth(SolvingTechnique.MultipleForcingChain, chainingHintProducers, new Chaining(true, false, false, 0, true, 0));
-        addIfWorth(SolvingTechnique.DynamicForcingChain, chainingHintProducers, new Chaining(true, true, false, 0, true, 0));
-        chainingHintProducers2 = new ArrayList<IndirectHintProducer>();
-        addIfWorth(SolvingTechnique.DynamicForcingChainPlus, chainingHintProducers2, new Chaining(true, true, false, 1, true, 0));
-        // These rules are not really solving techs. They check the validity of the puzzle
-        validatorHintProducers = new ArrayList<WarningHintProducer>();
-        validatorHintProducers.add(new NoDoubles());
-        warningHintProducers = new ArrayList<WarningHintProducer>();
-        warningHintProducers.add(new NumberOfFilledCells());
-        warningHintProducers.add(new NumberOfValues());
-        warningHintProducers.add(new BruteForceAnalysis(false));
-        UniqueSolutionHintProducers = new ArrayList<WarningHintProducer>();
-        UniqueSolutionHintProducers.add(new BruteForceAnalysis(false));
-        // These are very slow. We add them only as "rescue"
-        advancedHintProducers = new ArrayList<IndirectHintProducer>();
-        addIfWorth(SolvingTechnique.NestedForcingChain, advancedHintProducers, new Chaining(true, true, false, 2, true, 0));
-        addIfWorth(SolvingTechnique.NestedForcingChain, advancedHintProducers, new Chaining(true, true, false, 3, true, 0));
-        experimentalHintProducers = new ArrayList<IndirectHintProducer>(); // Two levels of nesting !?
-        addIfWorth(SolvingTechnique.NestedForcingChain, experimentalHintProducers, new Chaining(true, true, false, 4, true, 0));
-        addIfWorth(SolvingTechnique.NestedForcingChain, experimentalHintProducers, new Chaining(true, true, false, 4, true, 1));
-        addIfWorth(SolvingTechnique.NestedForcingChain, experimentalHintProducers, new Chaining(true, true, false, 4, true, 2));
+        directHintProducers = registry.directHintProducers;
+        indirectHintProducers = registry.indirectHintProducers;
+        chainingHintProducers = registry.chainingHintProducers;
+        chainingHintProducers2 = registry.chainingHintProducers2;
+        validatorHintProducers = registry.validatorHintProducers;
+        warningHintProducers = registry.warningHintProducers;
+        UniqueSolutionHintProducers = registry.UniqueSolutionHintProducers;
+        advancedHintProducers = registry.advancedHintProducers;
+        experimentalHintProducers = registry.experimentalHintProducers;
     }
 
     /**
      * This is the basic Sudoku rule: If a cell contains a value,
      * that value can be removed from the potential values of
      * all cells in the same block, row or column.
-     * @param partType the Class of the part to cancel in
-     * (block, row or column)
+     * @param partType the type of the part to cancel in
+     * ({@link Grid#BLOCK}, {@link Grid#ROW} or {@link Grid#COLUMN})
      */
-    private <T extends Grid.Region> void cancelBy(Class<T> partType) {
+    private void cancelBy(int partType) {
         Grid.Region[] parts = grid.getRegions(partType);
         for (Grid.Region part : parts) {
             for (int i = 0; i < 16; i++) {
@@ -211,70 +350,250 @@ public class Solver {
                     cell.clearPotentialValues();
             }
         }
-        cancelBy(Grid.Block.class);
-        cancelBy(Grid.Row.class);
-        cancelBy(Grid.Column.class);
+        cancelBy(Grid.BLOCK);
+        cancelBy(Grid.ROW);
+        cancelBy(Grid.COLUMN);
     }
 
     /**
-     * Lower the current thread's priority.
-     * @return the previous thread's priority
+     * Get the first available validity warning hint.
+     * This can be used to check the validity of a
+     * Sudoku grid. If the sudoku is valid, <code>null</code>
+     * is returned; else, a warning hint.
+     * @return a warning hint if the sudoku is invalid, <code>null</code>
+     * if the sudoku is valid.
      */
-    private int lowerPriority() {
+    public Hint checkValidity() {
+        SingleHintAccumulator accu = new SingleHintAccumulator();
         try {
-            int result = Thread.currentThread().getPriority();
-            Thread.currentThread().setPriority((Thread.NORM_PRIORITY + Thread.MIN_PRIORITY * 2) / 3);
-            return result;
-        } catch (AccessControlException ex) {}
-        return 0;
+            if (!findHint(validatorHintProducers, accu))
+                findHint(warningHintProducers, accu);
+        } catch (InterruptedException interrupted) {}
+        return accu.getHint();
+    }
+
+    public Hint checkUniqueSolution() {
+        SingleHintAccumulator accu = new SingleHintAccumulator();
+        try {
+            findHint(UniqueSolutionHintProducers, accu);
+        } catch (InterruptedException interrupted) {}
+        return accu.getHint();
+    }
+
+    /**
+     * Set the number of consecutive producers that may search for the hint
+     * of a step at the same time. The default is <tt>1</tt>: producers are run
+     * one after the other. With a greater value, the next producers are run
+     * concurrently, each on its own copy of the grid, and the hint of the
+     * first producer in order that finds one is taken. The hints are thus the same
+     * as with sequential search, but the producers must not share any state.
+     * @param parallelism the number of producers to run concurrently
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Set whether {@link #getDifficulty(StepListener)} applies singles in batches.
+     * When the hint of a step is a hidden or naked single, all the singles of the
+     * same producer and difficulty are then applied in that step, instead of
+     * searching again from the first producer after each of them. The difficulty,
+     * pearl and diamond are the same. The listener is told of each single, but
+     * of the start of a step only once for each batch.
+     * @param isBatchingSingles whether to apply singles in batches
+     */
+    public void setBatchingSingles(boolean isBatchingSingles) {
+        this.isBatchingSingles = isBatchingSingles;
+    }
+
+    /**
+     * Set the deadline of the rating done by {@link #getDifficulty(StepListener)}.
+     * If it expires, or is cancelled, the current step ends without hint and
+     * {@link #isTimedOut()} returns <tt>true</tt>.
+     * @param deadline the deadline, or <tt>null</tt> for none
+     */
+    public void setDeadline(Deadline deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Get whether the last rating was stopped by the deadline given to
+     * {@link #setDeadline(Deadline)}. The difficulty, pearl and diamond
+     * are then only those of the steps done before.
+     * @return whether the last rating timed out
+     */
+    public boolean isTimedOut() {
+        return this.isTimedOut;
     }
 
     /**
-     * Reset the current thread's priority to the given value.
-     * Typically, the given value is the value returned by
-     * {@link #lowerPriority()}.
-     * @param priority the new priority
+     * Run the given producers in order, until one of them adds a hint to
+     * the given accumulator.
+     * <p>
+     * A {@link ConditionalHintProducer} is skipped if the profile of the grid
+     * rules out any hint. An {@link IncrementalHintProducer} that found no hint
+     * before is skipped if the grid did not change since then, and only searches
+     * what changed otherwise.
+     * @param producers the producers to run
+     * @param accu the accumulator to add the hint to
+     * @return whether the accumulator holds a hint
      */
-    private void normalPriority(int priority) {
+    private boolean findHint(List<? extends HintProducer> producers,
+            SingleHintAccumulator accu) throws InterruptedException {
+        if (parallelism > 1) {
+            List<HintProducer> possibleProducers = new ArrayList<HintProducer>();
+            for (HintProducer producer : producers) {
+                if (isPossible(producer))
+                    possibleProducers.add(producer);
+            }
+            return raceHint(possibleProducers, accu);
+        }
+        for (HintProducer producer : producers) {
+            if (!isPossible(producer))
+                continue;
+            if (producer instanceof IncrementalHintProducer) {
+                long changeCount = grid.getChangeCount();
+                Long checkpoint = emptyCheckpoints.get(producer);
+                if (checkpoint == null)
+                    producer.getHints(grid, accu);
+                else if (checkpoint.longValue() != changeCount)
+                    ((IncrementalHintProducer)producer).getHints(grid, checkpoint.longValue(), accu);
+                if (accu.getHint() != null)
+                    return true;
+                emptyCheckpoints.put(producer, changeCount);
+            } else {
+                producer.getHints(grid, accu);
+                if (accu.getHint() != null)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get whether the given producer may find a hint in the current grid
+     */
+    private boolean isPossible(HintProducer producer) {
+        if (!(producer instanceof ConditionalHintProducer))
+            return true;
+        if (profile == null || !profile.isProfileOf(grid))
+            profile = new GridProfile(grid);
+        return ((ConditionalHintProducer)producer).isPossible(profile);
+    }
+
+    /**
+     * Same as {@link #findHint(List, SingleHintAccumulator)}, running up to
+     * {@link #parallelism} producers at the same time. The producers are waited
+     * for in order, so that the hint is the one the sequential search would find.
+     * Once it is known, the following producers are cancelled.
+     */
+    private boolean raceHint(List<? extends HintProducer> producers,
+            SingleHintAccumulator accu) throws InterruptedException {
+        List<Racer> started = new ArrayList<Racer>();
+        int next = 0;
         try {
-            Thread.currentThread().setPriority(priority);
-        } catch (AccessControlException ex) {}
+            for (int i = 0; i < producers.size(); i++) {
+                while (next < producers.size() && next < i + parallelism) {
+                    HintProducer producer = producers.get(next++);
+                    Racer racer = racers.get(producer);
+                    if (racer == null) {
+                        racer = new Racer(producer);
+                        racers.put(producer, racer);
+                    }
+                    racer.start(grid);
+                    started.add(racer);
+                }
+                Hint hint = started.get(i).join();
+                if (hint != null) {
+                    accu.add(hint);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            for (Racer racer : started)
+                racer.cancel();
+        }
     }
 
     /**
-     * Get the first available validity warning hint.
-     * This can be used to check the validity of a
-     * Sudoku grid. If the sudoku is valid, <code>null</code>
-     * is returned; else, a warning hint.
-     * @return a warning hint if the sudoku is invalid, <code>null</code>
-     * if the sudoku is valid.
+     * Get the singles that can be applied together with the given hint of
+     * a step: the hint itself, followed by the other hints of the same difficulty
+     * found by its producer, if it is a hidden or naked single producer.
+     * <p>
+     * These can be applied in any order, one after the other, without changing
+     * the maximal difficulty: the producers before the naked singles have lower
+     * difficulties, and the hidden singles are found from the lowest difficulty
+     * to the highest. As singles remain singles when other cells are filled,
+     * they are all applied by the one-at-a-time search as well.
+     * Some of them may however be no longer applicable once the previous ones
+     * are, which is checked when applying them.
+     * @param hint the hint of the step
+     * @return the hints to apply in the step, starting with the given one
      */
-    public Hint checkValidity() {
-        int oldPriority = lowerPriority();
+    private List<Hint> getSingles(Hint hint) {
+        final List<Hint> result = new ArrayList<Hint>();
+        result.add(hint);
+        HintProducer producer = hint.getRule();
+        if (producer instanceof HiddenSingle || producer instanceof NakedSingle) {
+            final double ruleDiff = ((Rule)hint).getDifficulty();
+            try {
+                producer.getHints(grid, new HintsAccumulator() {
+                    public boolean add(Hint single) {
+                        if (((Rule)single).getDifficulty() == ruleDiff)
+                            result.add(single);
+                        return true;
+                    }
+                });
+            } catch (InterruptedException interrupted) {}
+        }
+        return result;
+    }
+
+    /**
+     * Find the hint of the next solving step, that is, the first hint
+     * of the first producer able to produce one.
+     * @param isAdvanced whether to use the advanced and experimental
+     * producers if no other producer finds a hint
+     * @return the hint of the next step, or <tt>null</tt> if none was found
+     */
+    private Hint findStepHint(boolean isAdvanced) {
         SingleHintAccumulator accu = new SingleHintAccumulator();
         try {
-            for (WarningHintProducer producer : validatorHintProducers)
-                producer.getHints(grid, accu);
-            for (WarningHintProducer producer : warningHintProducers)
-                producer.getHints(grid, accu);
-        } catch (InterruptedException willProbablyHappen) {}
-        normalPriority(oldPriority);
+            if (!findHint(directHintProducers, accu)
+                    && !findHint(indirectHintProducers, accu)
+                    && !findHint(chainingHintProducers, accu)
+                    && !findHint(chainingHintProducers2, accu)
+                    && isAdvanced)
+                return findAdvancedStepHint(true);
+        } catch (InterruptedException interrupted) {}
         return accu.getHint();
     }
 
-    public Hint checkUniqueSolution() {
-        int oldPriority = lowerPriority();
+    /**
+     * Find the hint of the next solving step, using only the advanced
+     * and, optionally, the experimental producers.
+     * @param isExperimental whether to use the experimental producers
+     * if no advanced producer finds a hint
+     * @return the hint of the next step, or <tt>null</tt> if none was found
+     */
+    private Hint findAdvancedStepHint(boolean isExperimental) {
         SingleHintAccumulator accu = new SingleHintAccumulator();
         try {
-            for (WarningHintProducer producer : UniqueSolutionHintProducers)
-                producer.getHints(grid, accu);
-        } catch (InterruptedException willProbablyHappen) {}
-        normalPriority(oldPriority);
+            if (!findHint(advancedHintProducers, accu) && isExperimental)
+                findHint(experimentalHintProducers, accu);
+        } catch (InterruptedException interrupted) {}
         return accu.getHint();
     }
 
-    private void gatherProducer(List<Hint> previousHints, List<Hint> curHints,
-            HintsAccumulator accu, HintProducer producer) throws InterruptedException {
+    /**
+     * Gather the hints of the given producer
+     * @return whether the gathering of hints should go on
+     */
+    private boolean gatherProducer(List<Hint> previousHints, List<Hint> curHints,
+            StoppableHintsAccumulator accu, HintProducer producer) throws InterruptedException {
         // Get last hint producer. Because the last producer may not have produced
         // all its hints, we will need to restart from scratch with it.
         HintProducer lastProducer = null;
@@ -286,60 +605,69 @@ public class Solver {
             Hint hint = null;
             hint = previousHints.get(curHints.size());
             while (hint.getRule() == producer) {
-                accu.add(hint);
+                if (!accu.add(hint))
+                    return false;
                 hint = previousHints.get(curHints.size());
             }
         } else
             // Compute now
             producer.getHints(grid, accu);
+        return !accu.isStopped();
+    }
+
+    /**
+     * Gather the hints of the given producers
+     * @return whether the gathering of hints should go on
+     */
+    private boolean gatherProducers(List<Hint> previousHints, List<Hint> curHints,
+            StoppableHintsAccumulator accu, List<? extends HintProducer> producers)
+            throws InterruptedException {
+        for (HintProducer producer : producers) {
+            if (!gatherProducer(previousHints, curHints, accu, producer))
+                return false;
+        }
+        return true;
     }
 
     public void gatherHints(List<Hint> previousHints, final List<Hint> result,
             HintsAccumulator accu, Asker asker) {
 
-        int oldPriority = lowerPriority();
         boolean isAdvanced = false;
+        StoppableHintsAccumulator stoppable = new StoppableHintsAccumulator(accu);
         try {
-            for (HintProducer producer : directHintProducers)
-                gatherProducer(previousHints, result, accu, producer);
-            for (HintProducer producer : indirectHintProducers)
-                gatherProducer(previousHints, result, accu, producer);
-            for (HintProducer producer : validatorHintProducers)
-                gatherProducer(previousHints, result, accu, producer);
-            if (result.isEmpty()) {
-                for (HintProducer producer : warningHintProducers)
-                    gatherProducer(previousHints, result, accu, producer);
-            }
-            for (HintProducer producer : chainingHintProducers)
-                gatherProducer(previousHints, result, accu, producer);
-            for (HintProducer producer : chainingHintProducers2)
-                gatherProducer(previousHints, result, accu, producer);
-            boolean hasWarning = false;
-            for (Hint hint : result) {
-                if (hint instanceof WarningHint)
-                    hasWarning = true;
-            }
-            // We have not been interrupted yet. So no rule has been found yet
-            if (!hasWarning &&
-                    !(advancedHintProducers.isEmpty() && experimentalHintProducers.isEmpty()) &&
-                    (isUsingAdvanced || asker.ask(ADVANCED_WARNING2))) {
-                isAdvanced = true;
-                isUsingAdvanced = true;
-                for (HintProducer producer : advancedHintProducers)
-                    gatherProducer(previousHints, result, accu, producer);
-                for (HintProducer producer : experimentalHintProducers) {
-                    if (result.isEmpty() && Settings.getInstance().isUsingAllTechniques())
-                        gatherProducer(previousHints, result, accu, producer);
+            if (gatherProducers(previousHints, result, stoppable, directHintProducers)
+                    && gatherProducers(previousHints, result, stoppable, indirectHintProducers)
+                    && gatherProducers(previousHints, result, stoppable, validatorHintProducers)
+                    && (!result.isEmpty()
+                            || gatherProducers(previousHints, result, stoppable, warningHintProducers))
+                    && gatherProducers(previousHints, result, stoppable, chainingHintProducers)
+                    && gatherProducers(previousHints, result, stoppable, chainingHintProducers2)) {
+                boolean hasWarning = false;
+                for (Hint hint : result) {
+                    if (hint instanceof WarningHint)
+                        hasWarning = true;
+                }
+                // We have not been stopped yet. So no rule has been found yet
+                if (!hasWarning &&
+                        !(advancedHintProducers.isEmpty() && experimentalHintProducers.isEmpty()) &&
+                        (isUsingAdvanced || asker.ask(ADVANCED_WARNING2))) {
+                    isAdvanced = true;
+                    isUsingAdvanced = true;
+                    if (gatherProducers(previousHints, result, stoppable, advancedHintProducers)) {
+                        for (HintProducer producer : experimentalHintProducers) {
+                            if (result.isEmpty() && Settings.getInstance().isUsingAllTechniques()
+                                    && !gatherProducer(previousHints, result, stoppable, producer))
+                                break;
+                        }
+                    }
                 }
             }
-        } catch (InterruptedException willProbablyHappen) {}
+        } catch (InterruptedException interrupted) {}
         if (!isAdvanced)
             isUsingAdvanced = false;
-        normalPriority(oldPriority);
     }
 
     public List<Hint> getAllHints(Asker asker) {
-        int oldPriority = lowerPriority();
         List<Hint> result = new ArrayList<Hint>();
         HintsAccumulator accu = new DefaultHintsAccumulator(result);
         try {
@@ -375,18 +703,11 @@ public class Solver {
                 }
             }
         } catch (InterruptedException cannotHappen) {}
-        normalPriority(oldPriority);
         return result;
     }
 
     public boolean isSolved() {
-        for (int y = 0; y < 16; y++) {
-            for (int x = 0; x < 16; x++) {
-                if (grid.getCellValue(x, y) == 0)
-                    return false;
-            }
-        }
-        return true;
+        return grid.getEmptyCellCount() == 0;
     }
 
     private class RuleComparer implements Comparator<Rule> {
@@ -414,33 +735,17 @@ public class Solver {
      * be solved without recursive guessing (brute-force).
      */
     public Map<Rule,Integer> solve(Asker asker) {
-        int oldPriority = lowerPriority();
         // rebuildPotentialValues();
         Map<Rule,Integer> usedRules = new TreeMap<Rule,Integer>(new RuleComparer());
         boolean isUsingAdvanced = false;
         while (!isSolved()) {
-            SingleHintAccumulator accu = new SingleHintAccumulator();
-            try {
-                for (HintProducer producer : directHintProducers)
-                    producer.getHints(grid, accu);
-                for (IndirectHintProducer producer : indirectHintProducers)
-                    producer.getHints(grid, accu);
-                for (IndirectHintProducer producer : chainingHintProducers)
-                    producer.getHints(grid, accu);
-                for (IndirectHintProducer producer : chainingHintProducers2)
-                    producer.getHints(grid, accu);
-                if (!(advancedHintProducers.isEmpty() && experimentalHintProducers.isEmpty()) &&
-                        (asker == null || isUsingAdvanced || asker.ask(ADVANCED_WARNING1))) {
-                    isUsingAdvanced = true;
-                    for (IndirectHintProducer producer : advancedHintProducers)
-                        producer.getHints(grid, accu);
-                    for (IndirectHintProducer producer : experimentalHintProducers) {
-                        if (Settings.getInstance().isUsingAllTechniques())
-                            producer.getHints(grid, accu);
-                    }
-                }
-            } catch (InterruptedException willHappen) {}
-            Hint hint = accu.getHint();
+            Hint hint = findStepHint(false);
+            if (hint == null &&
+                    !(advancedHintProducers.isEmpty() && experimentalHintProducers.isEmpty()) &&
+                    (asker == null || isUsingAdvanced || asker.ask(ADVANCED_WARNING1))) {
+                isUsingAdvanced = true;
+                hint = findAdvancedStepHint(Settings.getInstance().isUsingAllTechniques());
+            }
             if (hint == null)
                 throw new UnsupportedOperationException("Failed to solve this Sudoku");
 //a         assert hint instanceof Rule;
@@ -451,7 +756,6 @@ public class Solver {
                 usedRules.put(rule, 1);
             hint.apply(grid);
         }
-        normalPriority(oldPriority);
         return usedRules;
     }
 
@@ -468,419 +772,127 @@ public class Solver {
      * given bounds. An arbitrary out-of-bounds value else.
      */
     public double analyseDifficulty(double min, double max) {
-        int oldPriority = lowerPriority();
-        try {
-            double difficulty = 0.0;
-            while (!isSolved()) {
-                SingleHintAccumulator accu = new SingleHintAccumulator();
-                try {
-                    for (HintProducer producer : directHintProducers)
-                        producer.getHints(grid, accu);
-                    for (IndirectHintProducer producer : indirectHintProducers)
-                        producer.getHints(grid, accu);
-                    for (IndirectHintProducer producer : chainingHintProducers)
-                        producer.getHints(grid, accu);
-                    for (IndirectHintProducer producer : chainingHintProducers2)
-                        producer.getHints(grid, accu);
-                    // Only used for generator. Ignore advanced/experimental techniques
-                //  for (IndirectHintProducer producer : advancedHintProducers)
-                //      producer.getHints(grid, accu);
-                //  for (IndirectHintProducer producer : experimentalHintProducers)
-                //      producer.getHints(grid, accu);
-                } catch (InterruptedException willHappen) {}
-                Hint hint = accu.getHint();
-                if (hint == null) {
-                    System.err.println("Failed to solve:\n" + grid.toString());
-                    return 20.0;
-                }
-//a             assert hint instanceof Rule;
-                Rule rule = (Rule)hint;
-                double ruleDiff = rule.getDifficulty();
-                if (ruleDiff > difficulty)
-                    difficulty = ruleDiff;
-                if (difficulty >= min && max >= 12.0)
-                    break;
-                if (difficulty > max)
-                    break;
-                hint.apply(grid);
+        double difficulty = 0.0;
+        while (!isSolved()) {
+            // Only used for generator. Ignore advanced/experimental techniques
+            Hint hint = findStepHint(false);
+            if (hint == null) {
+                System.err.println("Failed to solve:\n" + grid.toString());
+                return 20.0;
             }
-            return difficulty;
-        } finally {
-            normalPriority(oldPriority);
+//a         assert hint instanceof Rule;
+            Rule rule = (Rule)hint;
+            double ruleDiff = rule.getDifficulty();
+            if (ruleDiff > difficulty)
+                difficulty = ruleDiff;
+            if (difficulty >= min && max >= 12.0)
+                break;
+            if (difficulty > max)
+                break;
+            hint.apply(grid);
         }
+        return difficulty;
     }
 
-    public void getDifficulty() {
-    //  Grid backup = new Grid();
-    //  grid.copyTo(backup);
-        int oldPriority = lowerPriority();
-        try {
-            difficulty = 0.0;
-            pearl = 0.0;
-            diamond = 0.0;
-            while (!isSolved()) {
-                SingleHintAccumulator accu = new SingleHintAccumulator();
-                try {
-                    for (HintProducer producer : directHintProducers)
-                        producer.getHints(grid, accu);
-                    for (IndirectHintProducer producer : indirectHintProducers)
-                        producer.getHints(grid, accu);
-                    for (IndirectHintProducer producer : chainingHintProducers)
-                        producer.getHints(grid, accu);
-                    for (IndirectHintProducer producer : chainingHintProducers2)
-                        producer.getHints(grid, accu);
-                    for (IndirectHintProducer producer : advancedHintProducers)
-                        producer.getHints(grid, accu);
-                    for (IndirectHintProducer producer : experimentalHintProducers)
-                        producer.getHints(grid, accu);
-                } catch (InterruptedException willHappen) {}
-                Hint hint = accu.getHint();
-                if (hint == null) {
-                    difficulty = 20.0;
-                    break;
-                }
-//a             assert hint instanceof Rule;
-                Rule rule = (Rule)hint;
-                double ruleDiff = rule.getDifficulty();
-                if (ruleDiff > difficulty)
-                    difficulty = ruleDiff;
-                hint.apply(grid);
-                if (pearl == 0.0) {
-                    if (diamond == 0.0)
-                        diamond = difficulty;
-                    if (hint.getCell() != null) {
-                        if (want == 'd' && difficulty > diamond) {
-                            difficulty = 20.0;
-                            break;
-                        }
-                        pearl = difficulty;
-                    }
-                }
-                else if (want != 0 && difficulty > pearl) {
-                    difficulty = 20.0;
-                    break;
-                }
-            }
-        } finally {
-    //      backup.copyTo(grid);
-            normalPriority(oldPriority);
-        }
+    /**
+     * Get the steps of the solving of the grid, as done by
+     * {@link #getDifficulty(StepListener)}. The steps are computed
+     * one at a time, when asked for.
+     * <p>
+     * {@link Iterator#hasNext()} searches for the hint of the next step, and
+     * {@link Iterator#next()} applies it to the grid and returns it. Its difficulty
+     * is the one of the hint, as a {@link Rule}. The iteration ends when
+     * the grid is solved, or when no hint is found, in which case
+     * {@link #isTimedOut()} tells whether the deadline expired. Stopping
+     * the iteration early leaves the grid as solved so far.
+     * @return the steps of the solving of the grid
+     */
+    public Iterator<Hint> getSteps() {
+        isTimedOut = false;
+        return new StepIterator();
     }
 
-    public void getHintsHint() {
-    //  Grid backup = new Grid();
-    //  grid.copyTo(backup);
-        int oldPriority = lowerPriority();
-        try {
-            difficulty = 0.0;
-            pearl = 0.0;
-            diamond = 0.0;
-            while (!isSolved()) {
-                SingleHintAccumulator accu = new SingleHintAccumulator();
-                long tt = System.currentTimeMillis(); long hh, mm, ss, ms;
-                try {
-                    for (HintProducer producer : directHintProducers)
-                        producer.getHints(grid, accu);
-                    for (IndirectHintProducer producer : indirectHintProducers)
-                        producer.getHints(grid, accu);
-                    for (IndirectHintProducer producer : chainingHintProducers)
-                        producer.getHints(grid, accu);
-                    for (IndirectHintProducer producer : chainingHintProducers2)
-                        producer.getHints(grid, accu);
-                    for (IndirectHintProducer producer : advancedHintProducers)
-                        producer.getHints(grid, accu);
-                    for (IndirectHintProducer producer : experimentalHintProducers)
-                        producer.getHints(grid, accu);
-                } catch (InterruptedException willHappen) {}
-                tt = System.currentTimeMillis() - tt;
-                Hint hint = accu.getHint();
-                if (hint == null) {
-                    difficulty = 20.0;
-                    break;
-                }
-//a             assert hint instanceof Rule;
-                Rule rule = (Rule)hint;
-                double ruleDiff = rule.getDifficulty();
-                if (ruleDiff > difficulty)
-                    difficulty = ruleDiff;
-                hint.apply(grid);
-
-                String s = "";
-                for (int i = 0; i < 256; i++) {
-                    int n = grid.getCellValue(i % 16, i / 16);
-                    s += (n==0)?".":"@ABCDEFGHIJKLMNOP".substring(n,n+1);
-                }
-                s += " ";
-                ms= tt % 1000; tt = tt / 1000;
-                ss= tt % 60;   tt = tt / 60;
-                mm= tt % 60;   hh = tt / 60;
-                if ( hh < 10 ) { s += "0"; } s += "" + hh + ":";
-                if ( mm < 10 ) { s += "0"; } s += "" + mm + ":";
-                if ( ss < 10 ) { s += "0"; } s += "" + ss + ".";
-                if ( ms < 100) { s += "0"; }
-                if ( ms < 10 ) { s += "0"; } s += "" + ms + " ";
-                int w = (int)((ruleDiff + 0.05) * 10);
-                int p = w % 10;
-                w /= 10;
-                String t = "" + w + "." + p + ", " + hint.toString();
-                System.err.println(t);
-                System.err.flush();
-                s += w + "." + p;
-                s += ", " + hint.toString2();
-                if (hint instanceof IndirectHint) {
-                    IndirectHint iHint = (IndirectHint)hint;
-                    if ( iHint.isWorth() ) {
-                        int countCells = 0;
-                        Map<Cell, BitSet> getPots = iHint.getRemovablePotentials();
-                        Map<Integer, BitSet> remPots = new TreeMap<Integer, BitSet>();
-                        for (Cell cell : getPots.keySet()) {
-                            remPots.put(cell.getY()*16+cell.getX(), getPots.get(cell));
-                        }
-                        for (int cellindex : remPots.keySet()) {
-                            BitSet cellPots = remPots.get(cellindex);
-                            if ( countCells == 0 ) { s += ":"; }
-                            if ( countCells > 0 ) { s += ","; }
-                            s += " r" + (cellindex/16+1) + "c" + (cellindex%16+1) + "<>";
-                            int countPots = 0;
-                            for (int pv=1; pv<=16; pv++ ) {
-                                if ( cellPots.get( pv) ) { if ( countPots != 0 ) { s += ","; } s += pv; countPots++; }
-                            }
-                            countCells++;
-                        }
-                        Cell cell = iHint.getCell();
-                        if (cell != null) {
-                            s += ", r" + (cell.getY()+1) + "c" + (cell.getX()+1) + "=" + iHint.getValue();
-                        }
-                    }
-                }
-                if (hint instanceof DirectHint) {
-                    DirectHint iHint = (DirectHint)hint;
-                    Cell cell = iHint.getCell();
-                    if (cell != null) {
-                        s += ": r" + (cell.getY()+1) + "c" + (cell.getX()+1) + "=" + iHint.getValue();
-                    }
-                }
-                System.out.println(s);
-                System.out.flush();
-
-                if (pearl == 0.0) {
-                    if (diamond == 0.0)
-                        diamond = difficulty;
-                    if (hint.getCell() != null) {
-                        if (want == 'd' && difficulty > diamond) {
-                            difficulty = 20.0;
-                            break;
-                        }
-                        pearl = difficulty;
-                    }
-                }
-                else if (want != 0 && difficulty > pearl) {
-                    difficulty = 20.0;
-                    break;
-                }
-            }
-        } finally {
-    //      backup.copyTo(grid);
-            normalPriority(oldPriority);
-        }
+    public void getDifficulty() {
+        getDifficulty(null);
     }
 
-    public void getPencilMarks( int puzzleformat) {
+    /**
+     * Rate the grid: solve it one step at a time, and compute its
+     * difficulty, pearl and diamond ratings.
+     * <p>
+     * The given listener, if any, is notified of each step. No time is
+     * measured when there is no listener.
+     * @param listener the listener notified of each step, or <tt>null</tt>
+     * @see #setDeadline(Deadline)
+     */
+    public void getDifficulty(StepListener listener) {
     //  Grid backup = new Grid();
     //  grid.copyTo(backup);
-        int oldPriority = lowerPriority();
+        Deadline oldDeadline = Deadline.getCurrent();
+        if (deadline != null)
+            Deadline.setCurrent(deadline);
         try {
             difficulty = 0.0;
             pearl = 0.0;
             diamond = 0.0;
+            isTimedOut = false;
+            solving:
             while (!isSolved()) {
-                String s = "";
-
-                int crd = 1;
-                for (int i = 0; i < 256; i++) {
-                    int n = grid.getCell(i % 16, i / 16).getPotentialValues().cardinality();
-                    if ( n > crd ) { crd = n; }
-                }
-                if ( crd > 1 )
-                {
-                    for (int i=0; i<4; i++ ) {
-                        s = "+";
-                        for (int j=0; j<4; j++ ) {
-                            for (int k=0; k<4; k++ ) { s += "-";
-                                for (int l=0; l<crd; l++ ) { s += "-";
-                                }
-                            }
-                            s += "-+";
-                        }
-                        System.out.println(s);
-                        System.out.flush();
-
-                        for (int j=0; j<4; j++ ) {
-                            s = "|";
-                            for (int k=0; k<4; k++ ) {
-                                for (int l=0; l<4; l++ ) {
-                                    s += " ";
-                                    int cnt = 0;
-                                    int c = ((((i*4)+j)*4)+k)*4+l;
-                                    Cell cell = grid.getCell(c % 16, c / 16);
-                                    int n = cell.getValue();
-                                    if ( n != 0 ) {
-                                        if ( puzzleformat == 1 ) {
-                                            s += ".0123456789ABCDEF".substring(n,n+1);
-                                        }
-                                        else
-                                        if ( puzzleformat == 2 ) {
-                                            s += ".123456789ABCDEFG".substring(n,n+1);
-                                        }
-                                        else {
-                                            s += ".ABCDEFGHIJKLMNOP".substring(n,n+1);
-                                        }
-                                        cnt += 1;
-                                    }
-                                    if ( n == 0 ) {
-                                        for (int pv=1; pv<=16; pv++ ) {
-                                            if ( cell.hasPotentialValue( pv) ) {
-                                                if ( puzzleformat == 1 ) {
-                                                    s += ".0123456789ABCDEF".substring(pv,pv+1);
-                                                }
-                                                else
-                                                if ( puzzleformat == 2 ) {
-                                                    s += ".123456789ABCDEFG".substring(pv,pv+1);
-                                                }
-                                                else {
-                                                    s += ".ABCDEFGHIJKLMNOP".substring(pv,pv+1);
-                                                }
-                                                cnt += 1;
-                                            }
-                                        }
-                                    }
-                                    for (int pad=cnt; pad<crd; pad++ ) { s += " ";
-                                    }
-                                }
-                                s += " |";
-                            }
-                            System.out.println(s);
-                            System.out.flush();
-                        }
-                    }
-
-                    s = "+";
-                    for (int j=0; j<4; j++ ) {
-                        for (int k=0; k<4; k++ ) { s += "-";
-                            for (int l=0; l<crd; l++ ) { s += "-";
-                            }
-                        }
-                        s += "-+";
-                    }
-                    System.out.println(s);
-                    System.out.flush();
+                long start = 0L;
+                if (listener != null) {
+                    listener.stepStarted(grid);
+                    start = System.nanoTime();
                 }
-
-                SingleHintAccumulator accu = new SingleHintAccumulator();
-                try {
-                    for (HintProducer producer : directHintProducers)
-                        producer.getHints(grid, accu);
-                    for (IndirectHintProducer producer : indirectHintProducers)
-                        producer.getHints(grid, accu);
-                    for (IndirectHintProducer producer : chainingHintProducers)
-                        producer.getHints(grid, accu);
-                    for (IndirectHintProducer producer : chainingHintProducers2)
-                        producer.getHints(grid, accu);
-                    for (IndirectHintProducer producer : advancedHintProducers)
-                        producer.getHints(grid, accu);
-                    for (IndirectHintProducer producer : experimentalHintProducers)
-                        producer.getHints(grid, accu);
-                } catch (InterruptedException willHappen) {}
-                Hint hint = accu.getHint();
+                Hint hint = findStepHint(true);
                 if (hint == null) {
-                    difficulty = 20.0;
+                    if (deadline != null && deadline.isExpired())
+                        isTimedOut = true;
+                    else
+                        difficulty = 20.0;
                     break;
                 }
-//a             assert hint instanceof Rule;
-                Rule rule = (Rule)hint;
-                double ruleDiff = rule.getDifficulty();
-                if (ruleDiff > difficulty)
-                    difficulty = ruleDiff;
-                hint.apply(grid);
-
-                s = "";
-                for (int i = 0; i < 256; i++) {
-                    int n = grid.getCellValue(i % 16, i / 16);
-                    if ( puzzleformat == 1 ) {
-                        s += ".0123456789ABCDEF".substring(n,n+1);
-                    }
-                    else
-                    if ( puzzleformat == 2 ) {
-                        s += ".123456789ABCDEFG".substring(n,n+1);
+                long nanos = (listener != null ? System.nanoTime() - start : 0L);
+                List<Hint> batch = (isBatchingSingles ? getSingles(hint)
+                        : Collections.singletonList(hint));
+                for (Hint step : batch) {
+                    if (step != hint) {
+                        int index = step.getCell().getIndex();
+                        int value = step.getValue();
+                        if (grid.getValueAt(index) == value)
+                            continue; // Already applied by another single
+                        if (grid.getValueAt(index) != 0
+                                || (grid.getPotentialMaskAt(index) & (1 << (value - 1))) == 0)
+                            break; // Conflicting singles: let the next step sort it out
                     }
-                    else {
-                        s += ".ABCDEFGHIJKLMNOP".substring(n,n+1);
-                    }
-                }
-                s += " ";
-                int w = (int)((ruleDiff + 0.05) * 10);
-                int p = w % 10;
-                w /= 10;
-                String t = "" + w + "." + p + ", " + hint.toString();
-                System.err.println(t);
-                System.err.flush();
-                s += w + "." + p;
-                s += ", " + hint.toString2();
-                if (hint instanceof IndirectHint) {
-                    IndirectHint iHint = (IndirectHint)hint;
-                    if ( iHint.isWorth() ) {
-                        int countCells = 0;
-                        Map<Cell, BitSet> getPots = iHint.getRemovablePotentials();
-                        Map<Integer, BitSet> remPots = new TreeMap<Integer, BitSet>();
-                        for (Cell cell : getPots.keySet()) {
-                            remPots.put(cell.getY()*16+cell.getX(), getPots.get(cell));
-                        }
-                        for (int cellindex : remPots.keySet()) {
-                            BitSet cellPots = remPots.get(cellindex);
-                            if ( countCells == 0 ) { s += ":"; }
-                            if ( countCells > 0 ) { s += ","; }
-                            s += " r" + (cellindex/16+1) + "c" + (cellindex%16+1) + "<>";
-                            int countPots = 0;
-                            for (int pv=1; pv<=16; pv++ ) {
-                                if ( cellPots.get( pv) ) { if ( countPots != 0 ) { s += ","; } s += pv; countPots++; }
+//a                 assert step instanceof Rule;
+                    Rule rule = (Rule)step;
+                    double ruleDiff = rule.getDifficulty();
+                    if (ruleDiff > difficulty)
+                        difficulty = ruleDiff;
+                    step.apply(grid);
+                    if (listener != null)
+                        listener.stepSolved(step, ruleDiff, nanos, grid);
+                    nanos = 0L;
+                    if (pearl == 0.0) {
+                        if (diamond == 0.0)
+                            diamond = difficulty;
+                        if (step.getCell() != null) {
+                            if (want == 'd' && difficulty > diamond) {
+                                difficulty = 20.0;
+                                break solving;
                             }
-                            countCells++;
+                            pearl = difficulty;
                         }
-                        Cell cell = iHint.getCell();
-                        if (cell != null) {
-                            s += ", r" + (cell.getY()+1) + "c" + (cell.getX()+1) + "=" + iHint.getValue();
-                        }
-                    }
-                }
-                if (hint instanceof DirectHint) {
-                    DirectHint iHint = (DirectHint)hint;
-                    Cell cell = iHint.getCell();
-                    if (cell != null) {
-                        s += ": r" + (cell.getY()+1) + "c" + (cell.getX()+1) + "=" + iHint.getValue();
                     }
-                }
-                System.out.println(s);
-                System.out.flush();
-
-                if (pearl == 0.0) {
-                    if (diamond == 0.0)
-                        diamond = difficulty;
-                    if (hint.getCell() != null) {
-                        if (want == 'd' && difficulty > diamond) {
-                            difficulty = 20.0;
-                            break;
-                        }
-                        pearl = difficulty;
+                    else if (want != 0 && difficulty > pearl) {
+                        difficulty = 20.0;
+                        break solving;
                     }
                 }
-                else if (want != 0 && difficulty > pearl) {
-                    difficulty = 20.0;
-                    break;
-                }
             }
         } finally {
     //      backup.copyTo(grid);
-            normalPriority(oldPriority);
+            Deadline.setCurrent(oldDeadline);
         }
     }
 
@@ -903,13 +915,12 @@ public class Solver {
         try {
             SingleHintAccumulator accu = new SingleHintAccumulator();
             try {
-                for (WarningHintProducer producer : validatorHintProducers)
-                    producer.getHints(grid, accu);
-                for (WarningHintProducer producer : warningHintProducers)
-                    producer.getHints(grid, accu);
-                Analyser engine = new Analyser(this, asker);
-                engine.getHints(grid, accu);
-            } catch (InterruptedException willProbablyHappen) {}
+                if (!findHint(validatorHintProducers, accu)
+                        && !findHint(warningHintProducers, accu)) {
+                    Analyser engine = new Analyser(this, asker);
+                    engine.getHints(grid, accu);
+                }
+            } catch (InterruptedException interrupted) {}
             return accu.getHint();
         } finally {
             copy.copyTo(grid);
@@ -919,11 +930,11 @@ public class Solver {
     public Hint bruteForceSolve() {
         SingleHintAccumulator accu = new SingleHintAccumulator();
         try {
-            for (WarningHintProducer producer : validatorHintProducers)
-                producer.getHints(grid, accu);
-            Solution engine = new Solution();
-            engine.getHints(grid, accu);
-        } catch (InterruptedException willProbablyHappen) {}
+            if (!findHint(validatorHintProducers, accu)) {
+                Solution engine = new Solution();
+                engine.getHints(grid, accu);
+            }
+        } catch (InterruptedException interrupted) {}
         return accu.getHint();
     }
 
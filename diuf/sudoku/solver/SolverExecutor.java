@@ -0,0 +1,149 @@
+/*
+ * Project: Sudoku Explainer
+ * Copyright (C) 2006-2009 Nicolas Juillerat
+ * Available under the terms of the Lesser General Public License (LGPL)
+ */
+package diuf.sudoku.solver;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Executor running the background work of the solver: the producers racing
+ * for the next step, the parallel searches of the chaining producers, and the
+ * generation of sudokus in the GUI.
+ * <p>
+ * Tasks may wait for other tasks of the same executor. So that they cannot
+ * wait for each other while all threads are busy, {@link #join(Future)}
+ * runs a task that has not started yet in the calling thread.
+ */
+public class SolverExecutor {
+
+    /**
+     * Priority of the threads of the default executor, lower than
+     * the one of the user interface.
+     */
+    public static final int LOW_PRIORITY = (Thread.NORM_PRIORITY + Thread.MIN_PRIORITY * 2) / 3;
+
+    private static SolverExecutor instance = null;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Create a new executor
+     * @param poolSize the maximal number of threads
+     * @param threadFactory the factory of the threads
+     */
+    public SolverExecutor(int poolSize, ThreadFactory threadFactory) {
+        if (poolSize < 1)
+            throw new IllegalArgumentException("poolSize must be at least 1");
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Create a new executor with low priority daemon threads
+     * @param poolSize the maximal number of threads
+     */
+    public SolverExecutor(int poolSize) {
+        this(poolSize, createThreadFactory("Solver", LOW_PRIORITY, true));
+    }
+
+    /**
+     * Get the executor of the solver's background work. Unless
+     * another one was set, it has one low priority daemon thread
+     * per available processor.
+     * @return the executor of the solver's background work
+     */
+    public static synchronized SolverExecutor getInstance() {
+        if (instance == null)
+            instance = new SolverExecutor(Runtime.getRuntime().availableProcessors());
+        return instance;
+    }
+
+    /**
+     * Set the executor of the solver's background work. The previous one
+     * is shut down once its submitted tasks are done.
+     * @param executor the new executor
+     */
+    public static synchronized void setInstance(SolverExecutor executor) {
+        if (instance != null && instance != executor)
+            instance.executor.shutdown();
+        instance = executor;
+    }
+
+    /**
+     * Create a factory of threads with the given properties
+     * @param name the prefix of the names of the threads
+     * @param priority the priority of the threads
+     * @param isDaemon whether the threads are daemon threads
+     * @return the thread factory
+     */
+    public static ThreadFactory createThreadFactory(final String name, final int priority,
+            final boolean isDaemon) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+                thread.setDaemon(isDaemon);
+                try {
+                    thread.setPriority(priority);
+                } catch (SecurityException ex) {}
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Submit a task
+     * @param task the task
+     * @return the future result of the task, to be waited for
+     * with {@link #join(Future)}
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<T>(task);
+        executor.execute(future);
+        return future;
+    }
+
+    /**
+     * Submit a task
+     * @param task the task
+     * @return the future end of the task, to be waited for
+     * with {@link #join(Future)}
+     */
+    public Future<?> submit(Runnable task) {
+        FutureTask<Object> future = new FutureTask<Object>(task, null);
+        executor.execute(future);
+        return future;
+    }
+
+    /**
+     * Wait for the end of a task, running it in the current thread
+     * if no thread of the executor started it yet.
+     * @param future the future result of the task
+     * @return the result of the task
+     * @throws InterruptedException if the task was interrupted (that is, it
+     * threw an <tt>InterruptedException</tt>), or the current thread was
+     * interrupted while waiting
+     * @throws CancellationException if the task was cancelled
+     */
+    public static <T> T join(Future<T> future) throws InterruptedException {
+        if (future instanceof RunnableFuture)
+            ((RunnableFuture<T>)future).run();
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof InterruptedException)
+                throw (InterruptedException)cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            if (cause instanceof Error)
+                throw (Error)cause;
+            throw new RuntimeException(cause);
+        }
+    }
+
+}
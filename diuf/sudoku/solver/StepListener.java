@@ -0,0 +1,31 @@
+/*
+ * Project: Sudoku Explainer
+ * Copyright (C) 2006-2007 Nicolas Juillerat
+ * Available under the terms of the Lesser General Public License (LGPL)
+ */
+package diuf.sudoku.solver;
+
+import diuf.sudoku.*;
+
+/**
+ * Listener of the steps of a solve.
+ * @see Solver#getDifficulty(StepListener)
+ */
+public interface StepListener {
+
+    /**
+     * Called at the beginning of each step, before searching for its hint.
+     * @param grid the grid. It must not be modified.
+     */
+    public void stepStarted(Grid grid);
+
+    /**
+     * Called at the end of each step, once its hint has been applied.
+     * @param hint the hint of this step
+     * @param difficulty the difficulty of the hint
+     * @param nanos the time spent searching for the hint, in nanoseconds
+     * @param grid the grid. It must not be modified.
+     */
+    public void stepSolved(Hint hint, double difficulty, long nanos, Grid grid);
+
+}
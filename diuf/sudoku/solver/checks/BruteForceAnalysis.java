@@ -19,8 +19,6 @@ import diuf.sudoku.solver.rules.*;
  */
 public class BruteForceAnalysis implements WarningHintProducer {
 
-    private final Grid grid1 = new Grid();
-    private final Grid grid2 = new Grid();
     private final boolean includeSolution;
 
 
@@ -43,6 +41,7 @@ public class BruteForceAnalysis implements WarningHintProducer {
      */
     public void getHints(Grid grid, HintsAccumulator accu)
             throws InterruptedException {
+        Grid grid1 = new Grid();
         grid.copyTo(grid1);
         boolean hasSolution = analyse(grid1, false);
         if (!hasSolution) {
@@ -66,6 +65,7 @@ public class BruteForceAnalysis implements WarningHintProducer {
             accu.add(message);
             return;
         }
+        Grid grid2 = new Grid();
         grid.copyTo(grid2);
         analyse(grid2, true);
         if (!grid1.equals(grid2)) {
@@ -95,11 +95,13 @@ public class BruteForceAnalysis implements WarningHintProducer {
      */
     public int getCountSolutions(Grid solution, Grid grid) {
         new Solver(grid).rebuildPotentialValues();
+        Grid grid1 = new Grid();
         grid.copyTo(grid1);
         if (!analyse(grid1, false))
             return 0; // no solution
         if (!(grid1.equals(solution)))
             return 0; // not the solution
+        Grid grid2 = new Grid();
         grid.copyTo(grid2);
         analyse(grid2, true);
         if (grid1.equals(grid2))
@@ -114,13 +116,7 @@ public class BruteForceAnalysis implements WarningHintProducer {
      * @return whether the grid has been solved
      */
     private static boolean isSolved(Grid grid) {
-        for (int y = 0; y < 16; y++) {
-            for (int x = 0; x < 16; x++) {
-                if (grid.getCellValue(x, y) == 0)
-                    return false;
-            }
-        }
-        return true;
+        return grid.getEmptyCellCount() == 0;
     }
 
     /**
@@ -139,7 +135,22 @@ public class BruteForceAnalysis implements WarningHintProducer {
         DirectHintProducer hiddenSingle = new HiddenSingle();
         DirectHintProducer nakedSingle = new NakedSingle();
         // new Solver(grid).rebuildPotentialValues();
-        return analyse(grid, isReverse, null, hiddenSingle, nakedSingle);
+        return search(grid, isReverse, null, hiddenSingle, nakedSingle);
+    }
+
+    /**
+     * Run the recursive analysis with the undo journal of the grid enabled,
+     * so that failed branches are rewound instead of restored from copies.
+     */
+    private boolean search(Grid grid, boolean isReverse, Random rnd,
+            DirectHintProducer hiddenSingle, DirectHintProducer nakedSingle) {
+        boolean wasJournaling = grid.isJournaling();
+        try {
+            return analyse(grid, isReverse, rnd, hiddenSingle, nakedSingle);
+        } finally {
+            if (!wasJournaling)
+                grid.endJournal();
+        }
     }
 
     private boolean analyse(Grid grid, boolean isReverse, Random rnd,
@@ -164,7 +175,8 @@ public class BruteForceAnalysis implements WarningHintProducer {
             SingleHintAccumulator accu = new SingleHintAccumulator();
             try {
                 nakedSingle.getHints(grid, accu);
-                hiddenSingle.getHints(grid, accu);
+                if (accu.getHint() == null)
+                    hiddenSingle.getHints(grid, accu);
             } catch (InterruptedException ex) {}
             hint = accu.getHint();
         } while (hint != null);
@@ -180,7 +192,7 @@ public class BruteForceAnalysis implements WarningHintProducer {
             for (int x = 0; x < 16; x++) {
                 Cell cell = grid.getCell(x, y);
                 if (cell.getValue() == 0) {
-                    int cardinality = cell.getPotentialValues().cardinality();
+                    int cardinality = cell.getPotentialCount();
                     if (cardinality < leastCardinality) {
                         leastCardinality = cardinality;
                         leastCell = cell;
@@ -189,7 +201,6 @@ public class BruteForceAnalysis implements WarningHintProducer {
             }
         }
         // (3) Try each possible value for that cell
-        Grid savePoint = new Grid();
         int startValue = (isReverse ? 15 : 0);
         int stopValue = (isReverse ? -1 : 16);
         int delta = (isReverse ? -1 : 1);
@@ -201,13 +212,13 @@ public class BruteForceAnalysis implements WarningHintProducer {
             if (rnd != null) // Combine with random choice if random generator given
                 value = ((value0 + firstValue) % 16) + 1;
             if (leastCell.hasPotentialValue(value)) {
-                grid.copyTo(savePoint);
+                int savePoint = grid.mark();
                 leastCell.setValueAndCancel(value);
                 boolean result = analyse(grid, isReverse, rnd, hiddenSingle, nakedSingle);
                 if (result)
                     return true;
-                // Restore savepoint and continue with next value, if any
-                savePoint.copyTo(grid);
+                // Rewind to savepoint and continue with next value, if any
+                grid.rewind(savePoint);
             }
         }
         // Failed
@@ -230,7 +241,7 @@ public class BruteForceAnalysis implements WarningHintProducer {
             for (int i = 0; i < 16; i++) {
                 Grid.Region region = regions[i];
                 for (int value = 1; value <= 16; value++) {
-                    if (!region.contains(value) && region.getPotentialPositions(value).isEmpty())
+                    if (!region.contains(value) && region.getPotentialPositionsMask(value) == 0)
                         return false; // No room for the value in the region
                 }
             }
@@ -254,7 +265,7 @@ public class BruteForceAnalysis implements WarningHintProducer {
         DirectHintProducer nakedSingle = new NakedSingle();
         new Solver(grid).rebuildPotentialValues();
         boolean result = false;
-        result = analyse(grid, false, rnd, hiddenSingle, nakedSingle);
+        result = search(grid, false, rnd, hiddenSingle, nakedSingle);
         if (!result) {
             return false;
         }
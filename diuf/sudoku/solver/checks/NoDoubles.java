@@ -57,7 +57,8 @@ public class NoDoubles implements WarningHintProducer {
                                     return new Region[] {region};
                                 }
                             };
-                            accu.add(message);
+                            if (!accu.add(message))
+                                return;
                         } else
                             values.set(value);
                     }
@@ -31,17 +31,17 @@ public class AlignedPairExclusion extends AlignedExclusion {
         for (int y = 0; y < 16; y++) {
             for (int x = 0; x < 16; x++) {
                 Cell cell = grid.getCell(x, y);
-                if (cell.getPotentialValues().cardinality() >= 2) {
+                if (cell.getPotentialCount() >= 2) {
                     boolean hasNakedSingle = false;
                     // Look for potentially excluding cells (whose number of candidates <=
                     // degree)
                     Collection<Cell> excludingCells = new ArrayList<Cell>();
-                    for (Cell excludingCell : cell.getHouseCells()) {
-                        int exclCardinality = excludingCell.getPotentialValues().cardinality();
+                    for (int excludingIndex : Grid.getPeerIndexes(cell.getIndex())) {
+                        int exclCardinality = Integer.bitCount(grid.getPotentialMaskAt(excludingIndex));
                         if (exclCardinality == 1)
                             hasNakedSingle = true;
                         else if (exclCardinality == 2)
-                            excludingCells.add(excludingCell);
+                            excludingCells.add(grid.getCell(excludingIndex));
                     }
                     // Optimization: Skip this technique if naked singles are remaining
                     if (!hasNakedSingle && !excludingCells.isEmpty()) {
@@ -63,14 +63,15 @@ public class AlignedPairExclusion extends AlignedExclusion {
         // First iterate on the first two cells
         Twomutations cellSetPerm2 = new Twomutations(2, cellExcluders.size());
         while (cellSetPerm2.hasNext()) {
+            Deadline.check();
             int[] indexes = cellSetPerm2.nextBitNums();
             // Setup the first two cells
             Cell[] cells = new Cell[2];
             int[] cardinalities = new int[2];
             cells[0] = candidateList.get(indexes[0]);
-            cardinalities[0] = cells[0].getPotentialValues().cardinality();
+            cardinalities[0] = cells[0].getPotentialCount();
             cells[1] = candidateList.get(indexes[1]);
-            cardinalities[1] = cells[1].getPotentialValues().cardinality();
+            cardinalities[1] = cells[1].getPotentialCount();
 
             // Build the list of common excluding cells for the base cells 'cells'
             Set<Cell> commonExcluders = new LinkedHashSet<Cell>();
@@ -95,7 +96,7 @@ public class AlignedPairExclusion extends AlignedExclusion {
                         Cell lockingCell = null;
 
                         // Check if this potential combination is allowed, hidden single rule
-                        if (pt0 == pt1 && cells[0].getHouseCells().contains(cells[1]))
+                        if (pt0 == pt1 && cells[0].isHouseCell(cells[1]))
                             isAllowed = false;
 
                         // Check if this potential combination is allowed, using common
@@ -148,8 +149,8 @@ public class AlignedPairExclusion extends AlignedExclusion {
                 // Create hint
                 IndirectHint hint = new AlignedExclusionHint(this, removablePotentials,
                         cells, lockedPotentialCombinations);
-                if (hint.isWorth())
-                    accu.add(hint);
+                if (hint.isWorth() && !accu.add(hint))
+                    return;
             } // if enough common excluders
         } // Iterate on cell permutations
 
@@ -21,7 +21,8 @@ import diuf.sudoku.tools.*;
  * <li>Degree 4: Jellyfish
  * </ul>
  */
-public class Fisherman implements IndirectHintProducer {
+public class Fisherman implements IndirectHintProducer, IncrementalHintProducer,
+        ConditionalHintProducer {
 
     private final int degree;
 
@@ -30,60 +31,74 @@ public class Fisherman implements IndirectHintProducer {
         this.degree = degree;
     }
 
+    public boolean isPossible(GridProfile profile) {
+        return profile.getMaxMissingCount() >= degree * 2;
+    }
+
     public void getHints(Grid grid, HintsAccumulator accu) throws InterruptedException {
-        getHints(grid, Grid.Column.class, Grid.Row.class, accu);
-        getHints(grid, Grid.Row.class, Grid.Column.class, accu);
+        getHints(grid, 0xFFFF, accu);
+    }
+
+    public void getHints(Grid grid, long checkpoint, HintsAccumulator accu) throws InterruptedException {
+        getHints(grid, grid.getChangedValues(checkpoint), accu);
     }
 
-    private <S extends Grid.Region,T extends Grid.Region> void getHints(Grid grid,
-            Class<S> partType1, Class<T> partType2,
+    /**
+     * Search the fishes of the given values only: the fishes of a value
+     * only depend on the placements and potential positions of that value.
+     * @param valueMask the values to search, bit <tt>(value - 1)</tt> being
+     * set for each of them
+     */
+    private void getHints(Grid grid, int valueMask, HintsAccumulator accu) throws InterruptedException {
+        if (getHints(grid, Grid.COLUMN, Grid.ROW, valueMask, accu))
+            getHints(grid, Grid.ROW, Grid.COLUMN, valueMask, accu);
+    }
+
+    private boolean getHints(Grid grid, int partType1, int partType2, int valueMask,
             HintsAccumulator accu) throws InterruptedException {
-//a     assert !partType1.equals(partType2);
-
-        // Get occurance count for each value
-        int[] occurances = new int[17];
-        for (int value = 1; value <= 16; value++)
-            occurances[value] = grid.getCountOccurancesOfValue(value);
-
-        Grid.Region[] parts = grid.getRegions(partType1);
-        // Iterate on lines tuples
-        Permutations perm = new Permutations(degree, 16);
-        while (perm.hasNext()) {
-            int[] indexes = perm.nextBitNums();
-//a         assert indexes.length == degree;
-
-            BitSet myIndexes = new BitSet(16);
-            for (int i = 0; i < indexes.length; i++)
-                myIndexes.set(indexes[i]);
-
-            // Iterate on values
-            for (int value = 1; value <= 16; value++) {
-
-                // Pattern is only possible if there are at least (degree * 2) missing occurances
-                // of the value.
-                if (occurances[value] + degree * 2 <= 16) {
-
-                    // Check for exactly the same positions of the value in all lines
-                    BitSet[] positions = new BitSet[degree];
-                    for (int i = 0; i < degree; i++)
-                        positions[i] = parts[indexes[i]].getPotentialPositions(value);
-                    BitSet common = CommonTuples.searchCommonTuple(positions, degree);
-
-                    if (common != null) {
-                        // Potential hint found
-                        IndirectHint hint = createFishHint(grid, partType1, partType2,
-                                myIndexes, common, value);
-                        if (hint.isWorth())
-                            accu.add(hint);
+//a     assert partType1 != partType2;
+
+        SubsetAnalysis analysis = SubsetAnalysis.getInstance(grid);
+        // Tuples of lines with exactly the same positions of the value, for each value
+        int[][] fishes = new int[16][];
+        for (int value = 1; value <= 16; value++) {
+            Deadline.check();
+            // Pattern is only possible if there are at least (degree * 2) missing occurances
+            // of the value.
+            if ((valueMask & (1 << (value - 1))) != 0
+                    && grid.getCountOccurancesOfValue(value) + degree * 2 <= 16)
+                fishes[value - 1] = analysis.getFishes(grid, partType1, value, degree);
+            else
+                fishes[value - 1] = new int[0];
+        }
+
+        // Iterate on lines tuples, in increasing order, then on values
+        int[] next = new int[16];
+        while (true) {
+            int value = 0;
+            int lines = 0;
+            for (int i = 0; i < 16; i++) {
+                if (next[i] < fishes[i].length) {
+                    int indexes = fishes[i][next[i]] >>> 16;
+                    if (value == 0 || indexes < lines) {
+                        value = i + 1;
+                        lines = indexes;
                     }
                 }
             }
+            if (value == 0)
+                return true;
+            int common = fishes[value - 1][next[value - 1]++] & 0xFFFF;
+            // Potential hint found
+            IndirectHint hint = createFishHint(grid, partType1, partType2,
+                    BitSet.valueOf(new long[] {lines}), BitSet.valueOf(new long[] {common}), value);
+            if (hint.isWorth() && !accu.add(hint))
+                return false;
         }
     }
 
-    private <S extends Grid.Region,T extends Grid.Region> IndirectHint createFishHint(
-            Grid grid, Class<S> otherPartType, Class<T> myPartType, BitSet otherIndexes,
-            BitSet myIndexes, int value) {
+    private IndirectHint createFishHint(Grid grid, int otherPartType, int myPartType,
+            BitSet otherIndexes, BitSet myIndexes, int value) {
         Grid.Region[] myParts = grid.getRegions(myPartType);
         Grid.Region[] otherParts = grid.getRegions(otherPartType);
         // Build parts
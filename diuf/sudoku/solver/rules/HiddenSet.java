@@ -18,7 +18,8 @@ import diuf.sudoku.tools.*;
  * Only used for degree 2 and below. Degree 1 (hidden single)
  * is implemented in {@link diuf.sudoku.solver.rules.HiddenSingle}.
  */
-public class HiddenSet implements IndirectHintProducer {
+public class HiddenSet implements IndirectHintProducer, IncrementalHintProducer,
+        ConditionalHintProducer {
 
     private final int degree;
     private final boolean isDirect;
@@ -30,52 +31,76 @@ public class HiddenSet implements IndirectHintProducer {
         this.isDirect = isDirect;
     }
 
+    /**
+     * Get whether a region with the given number of empty cells is searched.
+     * <p>
+     * In a region with <tt>n</tt> empty cells, the other <tt>n - k</tt> cells of
+     * a hidden set of degree <tt>k</tt> hold a naked set of degree <tt>n - k</tt>,
+     * and conversely. A hidden set is thus only searched if its degree is less
+     * than <tt>n / 2</tt>, the larger ones being found as the smaller naked
+     * sets (see {@link NakedSet}), which also take the case <tt>k = n / 2</tt>.
+     * Direct hidden sets, which give a hidden single once their other potential
+     * values are removed, have no naked counterpart: they only need another
+     * empty cell.
+     * @param nbEmptyCells the number of empty cells of the region
+     * @return whether to search the region
+     */
+    private boolean isSearched(int nbEmptyCells) {
+        return nbEmptyCells > degree * 2 || (isDirect && nbEmptyCells > degree);
+    }
+
+    public boolean isPossible(GridProfile profile) {
+        return isSearched(profile.getMaxEmptyCellCount());
+    }
+
     public void getHints(Grid grid, HintsAccumulator accu) throws InterruptedException {
-        getHints(grid, Grid.Block.class, accu);
-        getHints(grid, Grid.Column.class, accu);
-        getHints(grid, Grid.Row.class, accu);
+        getRegionHints(grid, -1L, accu);
+    }
+
+    public void getHints(Grid grid, long checkpoint, HintsAccumulator accu) throws InterruptedException {
+        getRegionHints(grid, grid.getChangedRegions(checkpoint), accu);
+    }
+
+    private void getRegionHints(Grid grid, long regionMask, HintsAccumulator accu) throws InterruptedException {
+        if (getHints(grid, Grid.BLOCK, regionMask, accu) && getHints(grid, Grid.COLUMN, regionMask, accu))
+            getHints(grid, Grid.ROW, regionMask, accu);
     }
 
     /**
      * For each parts of the given type, check if a n-tuple of cells have
      * a common n-tuple of potential values, and no other potential value.
      * @param regionType the type of the parts to check
-     * @param degree the degree of the tuples to search
+     * @param regionMask the parts to check, by region index
+     * @return whether the search for hints should go on
      */
-    private <T extends Grid.Region> void getHints(Grid grid, Class<T> regionType,
+    private boolean getHints(Grid grid, int regionType, long regionMask,
             HintsAccumulator accu) throws InterruptedException {
+        SubsetAnalysis analysis = SubsetAnalysis.getInstance(grid);
         Grid.Region[] regions = grid.getRegions(regionType);
         // Iterate on parts
         for (Grid.Region region : regions) {
-            int nbEmptyCells = region.getEmptyCellCount();
-            if (nbEmptyCells > degree * 2 || (isDirect && nbEmptyCells > degree)) {
-                Permutations perm = new Permutations(degree, 16);
-                // Iterate on tuple of values
-                while (perm.hasNext()) {
-                    int[] values = perm.nextBitNums();
-//a                 assert values.length == degree;
-
+            if ((regionMask & (1L << region.getRegionIndex())) == 0)
+                continue;
+            if (isSearched(region.getEmptyCellCount())) {
+                Deadline.check();
+                // Tuples of values with a common tuple of potential positions, with same degree
+                for (int tuple : analysis.getHiddenSets(region, degree)) {
                     // Build the value tuple
-                    for (int i = 0; i < values.length; i++)
-                        values[i] += 1; // 0..15 -> 1..16
-
-                    // Build potential positions for each value of the tuple
-                    BitSet[] potentialIndexes = new BitSet[degree];
-                    for (int i = 0; i < degree; i++)
-                        potentialIndexes[i] = region.getPotentialPositions(values[i]);
-
-                    // Look for a common tuple of potential positions, with same degree
-                    BitSet commonPotentialPositions =
-                        CommonTuples.searchCommonTuple(potentialIndexes, degree);
-                    if (commonPotentialPositions != null) {
-                        // Hint found
-                        IndirectHint hint = createHiddenSetHint(region, values, commonPotentialPositions);
-                        if (hint != null && hint.isWorth())
-                            accu.add(hint);
+                    int[] values = new int[degree];
+                    int valueMask = tuple >>> 16;
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = Integer.numberOfTrailingZeros(valueMask) + 1; // 0..15 -> 1..16
+                        valueMask &= valueMask - 1;
                     }
+                    BitSet commonPotentialPositions = BitSet.valueOf(new long[] {tuple & 0xFFFF});
+                    // Hint found
+                    IndirectHint hint = createHiddenSetHint(region, values, commonPotentialPositions);
+                    if (hint != null && hint.isWorth() && !accu.add(hint))
+                        return false;
                 }
             }
         }
+        return true;
     }
 
     private IndirectHint createHiddenSetHint(Grid.Region region, int[] values,
@@ -17,40 +17,64 @@ import diuf.sudoku.solver.*;
 public class HiddenSingle implements DirectHintProducer {
 
     public void getHints(Grid grid, HintsAccumulator accu) throws InterruptedException {
+        // Single pass on all regions: the values having one potential position
+        int[] singleValues = new int[48];
+        boolean hasSingles = false;
+        for (int regionIndex = 0; regionIndex < 48; regionIndex++) {
+            Grid.Region region = grid.getRegion(regionIndex);
+            int mask = 0;
+            for (int value = 1; value <= 16; value++) {
+                int positions = region.getPotentialPositionsMask(value);
+                if (positions != 0 && (positions & (positions - 1)) == 0)
+                    mask |= 1 << (value - 1);
+            }
+            singleValues[regionIndex] = mask;
+            if (mask != 0)
+                hasSingles = true;
+        }
+        if (!hasSingles)
+            return;
         // First alone cells (last empty cell in a region)
-        getHints(grid, Grid.Block.class, accu, true);
-        getHints(grid, Grid.Column.class, accu, true);
-        getHints(grid, Grid.Row.class, accu, true);
+        if (!addHints(grid, Grid.BLOCK, singleValues, accu, true)
+                || !addHints(grid, Grid.COLUMN, singleValues, accu, true)
+                || !addHints(grid, Grid.ROW, singleValues, accu, true))
+            return;
         // Then hidden cells
-        getHints(grid, Grid.Block.class, accu, false);
-        getHints(grid, Grid.Column.class, accu, false);
-        getHints(grid, Grid.Row.class, accu, false);
+        if (addHints(grid, Grid.BLOCK, singleValues, accu, false)
+                && addHints(grid, Grid.COLUMN, singleValues, accu, false))
+            addHints(grid, Grid.ROW, singleValues, accu, false);
     }
 
     /**
-     * For each parts of the given type, check if a value has only one
-     * possible potential position.
-     * @param regionType the type of the parts to check
+     * For each parts of the given type, add the hints of the values having
+     * only one possible potential position.
+     * @param regionType the type of the parts
+     * @param singleValues for each region, by region index, the mask of the
+     * values with one potential position
+     * @return whether the search for hints should go on
      */
-    private <T extends Grid.Region> void getHints(Grid grid, Class<T> regionType,
+    private boolean addHints(Grid grid, int regionType, int[] singleValues,
             HintsAccumulator accu, boolean aloneOnly) throws InterruptedException {
         Grid.Region[] regions = grid.getRegions(regionType);
         // Iterate on parts
         for (Grid.Region region : regions) {
+            int mask = singleValues[region.getRegionIndex()];
+            if (mask == 0)
+                continue;
+            boolean isAlone = region.getEmptyCellCount() == 1;
+            if (isAlone != aloneOnly)
+                continue;
             // Iterate on values
-            for (int value = 1; value <= 16; value++) {
-                // Get value's potential position
-                BitSet potentialIndexes = region.getPotentialPositions(value);
-                if (potentialIndexes.cardinality() == 1) {
-                    // One potential position -> solution found
-                    int uniqueIndex = potentialIndexes.nextSetBit(0);
-                    Cell cell = region.getCell(uniqueIndex);
-                    boolean isAlone = region.getEmptyCellCount() == 1;
-                    if (isAlone == aloneOnly)
-                        accu.add(new HiddenSingleHint(this, region, cell, value, isAlone));
-                }
+            for (; mask != 0; mask &= mask - 1) {
+                int value = Integer.numberOfTrailingZeros(mask) + 1;
+                // One potential position -> solution found
+                int uniqueIndex = Integer.numberOfTrailingZeros(region.getPotentialPositionsMask(value));
+                Cell cell = region.getCell(uniqueIndex);
+                if (!accu.add(new HiddenSingleHint(this, region, cell, value, isAlone)))
+                    return false;
             }
         }
+        return true;
     }
 
     @Override
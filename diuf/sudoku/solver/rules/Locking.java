@@ -23,10 +23,10 @@ public class Locking implements IndirectHintProducer {
     }
 
     public void getHints(Grid grid, HintsAccumulator accu) throws InterruptedException {
-        getHints(grid, Grid.Block.class, Grid.Column.class, accu);
-        getHints(grid, Grid.Block.class, Grid.Row.class, accu);
-        getHints(grid, Grid.Column.class, Grid.Block.class, accu);
-        getHints(grid, Grid.Row.class, Grid.Block.class, accu);
+        if (getHints(grid, Grid.BLOCK, Grid.COLUMN, accu)
+                && getHints(grid, Grid.BLOCK, Grid.ROW, accu)
+                && getHints(grid, Grid.COLUMN, Grid.BLOCK, accu))
+            getHints(grid, Grid.ROW, Grid.BLOCK, accu);
     }
 
     /**
@@ -38,43 +38,39 @@ public class Locking implements IndirectHintProducer {
      * {@link Grid.Block 3x3 square}.
      * @param regionType1 the first part type
      * @param regionType2 the second part type
+     * @return whether the search for hints should go on
      */
-    private <S extends Grid.Region, T extends Grid.Region> void getHints(
-            Grid grid, Class<S> regionType1, Class<T> regionType2,
+    private boolean getHints(Grid grid, int regionType1, int regionType2,
             HintsAccumulator accu) throws InterruptedException {
-//a     assert (regionType1 == Grid.Block.class) != (regionType2 == Grid.Block.class);
+//a     assert (regionType1 == Grid.BLOCK) != (regionType2 == Grid.BLOCK);
 
         // Iterate on pairs of parts
         for (int i1 = 0; i1 < 16; i1++) {
             for (int i2 = 0; i2 < 16; i2++) {
-                Grid.Region region1 = grid.getRegions(regionType1)[i1];
-                Grid.Region region2 = grid.getRegions(regionType2)[i2];
-                if (region1.crosses(region2)) {
-                    Set<Cell> region2Cells = region2.getCellSet();
+                int regionIndex1 = regionType1 * 16 + i1;
+                int regionIndex2 = regionType2 * 16 + i2;
+                // Positions, within part1, of the cells that are also in part2
+                int commonPositions = Grid.getIntersectionMask(regionIndex1, regionIndex2);
+                if (commonPositions != 0) {
+                    Grid.Region region1 = grid.getRegion(regionIndex1);
+                    Grid.Region region2 = grid.getRegion(regionIndex2);
                     // Iterate on values
                     for (int value = 1; value <= 16; value++) {
-                        boolean isInCommonSet = true;
                         // Get the potential positions of the value in part1
-                        BitSet potentialPositions = region1.getPotentialPositions(value);
+                        int potentialPositions = region1.getPotentialPositionsMask(value);
                         // Note: if cardinality == 1, this is Hidden Single in part1
-                        if (potentialPositions.cardinality() > 1) {
+                        if (Integer.bitCount(potentialPositions) > 1) {
                             // Test if all potential positions are also in part2
-                            for (int i = 0; i < 16; i++) {
-                                if (potentialPositions.get(i)) {
-                                    Cell cell = region1.getCell(i);
-                                    if (!region2Cells.contains(cell))
-                                        isInCommonSet = false;
-                                }
-                            }
-                            if (isInCommonSet) {
+                            if ((potentialPositions & ~commonPositions) == 0) {
                                 if (isDirectMode) {
-                                    lookForFollowingHiddenSingles(grid, regionType1, accu, i1,
-                                            region1, region2, value);
+                                    if (!lookForFollowingHiddenSingles(grid, regionType1, accu, i1,
+                                            region1, region2, value))
+                                        return false;
                                 } else {
                                     // Potential solution found
                                     IndirectHint hint = createLockingHint(region1, region2, null, value);
-                                    if (hint.isWorth())
-                                        accu.add(hint);
+                                    if (hint.isWorth() && !accu.add(hint))
+                                        return false;
                                 }
                             }
                         }
@@ -82,40 +78,36 @@ public class Locking implements IndirectHintProducer {
                 } // if parts are crossing
             }
         }
+        return true;
     }
 
-    private <S extends Grid.Region> void lookForFollowingHiddenSingles(Grid grid,
-            Class<S> regionType1, HintsAccumulator accu, int i1,
+    private boolean lookForFollowingHiddenSingles(Grid grid,
+            int regionType1, HintsAccumulator accu, int i1,
             Grid.Region region1, Grid.Region region2, int value) throws InterruptedException {
         // Look if the pointing / claiming induce a hidden single
         for(int i3 = 0; i3 < 16; i3++) {
             if (i3 != i1) {
-                Grid.Region region3 = grid.getRegions(regionType1)[i3];
-                if (region3.crosses(region2)) {
+                int regionIndex3 = regionType1 * 16 + i3;
+                int commonPositions = Grid.getIntersectionMask(regionIndex3,
+                        region2.getRegionIndex());
+                if (commonPositions != 0) {
                     // Region <> region1 but crosses region2
-                    Set<Cell> region2Cells = region2.getCellSet();
-                    BitSet potentialPositions3 = region3.getPotentialPositions(value);
-                    if (potentialPositions3.cardinality() > 1) {
-                        int nbRemainInRegion3 = 0;
-                        Cell hcell = null;
-                        for (int i = 0; i < 16; i++) {
-                            if (potentialPositions3.get(i)) {
-                                Cell cell = region3.getCell(i);
-                                if (!region2Cells.contains(cell)) { // This position is not removed
-                                    nbRemainInRegion3++;
-                                    hcell = cell;
-                                }
-                            }
-                        }
-                        if (nbRemainInRegion3 == 1) {
+                    Grid.Region region3 = grid.getRegion(regionIndex3);
+                    int potentialPositions3 = region3.getPotentialPositionsMask(value);
+                    if (Integer.bitCount(potentialPositions3) > 1) {
+                        // Positions that are not removed
+                        int remainInRegion3 = potentialPositions3 & ~commonPositions;
+                        if (Integer.bitCount(remainInRegion3) == 1) {
+                            Cell hcell = region3.getCell(Integer.numberOfTrailingZeros(remainInRegion3));
                             IndirectHint hint = createLockingHint(region1, region2, hcell, value);
-                            if (hint.isWorth())
-                                accu.add(hint);
+                            if (hint.isWorth() && !accu.add(hint))
+                                return false;
                         }
                     }
                 }
             }
         }
+        return true;
     }
 
     private IndirectHint createLockingHint(Grid.Region p1, Grid.Region p2, Cell hcell, int value) {
@@ -16,59 +16,82 @@ import diuf.sudoku.tools.*;
  * Implementation of the naked sets solving techniques
  * (Naked Pair, Naked Triplet, Naked Quad).
  */
-public class NakedSet implements IndirectHintProducer {
+public class NakedSet implements IndirectHintProducer, IncrementalHintProducer,
+        ConditionalHintProducer {
 
-    private int degree;
+    private final int degree;
 
     public NakedSet(int degree) {
 //a     assert degree > 1 && degree <= 7;
         this.degree = degree;
     }
 
+    /**
+     * Get whether a region with the given number of empty cells is searched.
+     * <p>
+     * In a region with <tt>n</tt> empty cells, the other <tt>n - k</tt> cells of
+     * a naked set of degree <tt>k</tt> hold a hidden set of degree <tt>n - k</tt>,
+     * and conversely. A naked set is thus only searched if its degree is at most
+     * <tt>n / 2</tt>, the larger ones being found as the smaller
+     * hidden sets (see {@link HiddenSet}).
+     * @param nbEmptyCells the number of empty cells of the region
+     * @return whether to search the region
+     */
+    private boolean isSearched(int nbEmptyCells) {
+        return nbEmptyCells >= degree * 2;
+    }
+
+    public boolean isPossible(GridProfile profile) {
+        return isSearched(profile.getMaxEmptyCellCount());
+    }
+
     public void getHints(Grid grid, HintsAccumulator accu) throws InterruptedException {
-        getHints(grid, Grid.Block.class, accu);
-        getHints(grid, Grid.Column.class, accu);
-        getHints(grid, Grid.Row.class, accu);
+        getRegionHints(grid, -1L, accu);
+    }
+
+    public void getHints(Grid grid, long checkpoint, HintsAccumulator accu) throws InterruptedException {
+        getRegionHints(grid, grid.getChangedRegions(checkpoint), accu);
+    }
+
+    private void getRegionHints(Grid grid, long regionMask, HintsAccumulator accu) throws InterruptedException {
+        if (getHints(grid, Grid.BLOCK, regionMask, accu) && getHints(grid, Grid.COLUMN, regionMask, accu))
+            getHints(grid, Grid.ROW, regionMask, accu);
     }
 
     /**
      * For each regions of the given type, check if a n-tuple of values have
      * a common n-tuple of potential positions, and no other potential position.
+     * @param regionMask the regions to check, by region index
+     * @return whether the search for hints should go on
      */
-    private <T extends Grid.Region> void getHints(Grid grid, Class<T> regionType,
+    private boolean getHints(Grid grid, int regionType, long regionMask,
             HintsAccumulator accu) throws InterruptedException {
+        SubsetAnalysis analysis = SubsetAnalysis.getInstance(grid);
         Grid.Region[] regions = grid.getRegions(regionType);
         // Iterate on parts
         for (Grid.Region region : regions) {
-            if (region.getEmptyCellCount() >= degree * 2) {
-                Permutations perm = new Permutations(degree, 16);
-                // Iterate on tuples of positions
-                while (perm.hasNext()) {
-                    int[] indexes = perm.nextBitNums();
-//a                 assert indexes.length == degree;
-
+            if ((regionMask & (1L << region.getRegionIndex())) != 0
+                    && isSearched(region.getEmptyCellCount())) {
+                Deadline.check();
+                // Tuples of positions with a common tuple of potential values, with same degree
+                for (int tuple : analysis.getNakedSets(region, degree)) {
                     // Build the cell tuple
                     Cell[] cells = new Cell[degree];
-                    for (int i = 0; i < cells.length; i++)
-                        cells[i] = region.getCell(indexes[i]);
-
-                    // Build potential values for each position of the tuple
-                    BitSet[] potentialValues = new BitSet[degree];
-                    for (int i = 0; i < degree; i++)
-                        potentialValues[i] = cells[i].getPotentialValues();
-
-                    // Look for a common tuple of potential values, with same degree
-                    BitSet commonPotentialValues =
-                        CommonTuples.searchCommonTuple(potentialValues, degree);
-                    if (commonPotentialValues != null) {
-                        // Potential hint found
-                        IndirectHint hint = createValueUniquenessHint(region, cells, commonPotentialValues);
-                        if (hint.isWorth())
-                            accu.add(hint);
+                    int positions = tuple >>> 16;
+                    for (int i = 0; i < cells.length; i++) {
+                        int index = Integer.numberOfTrailingZeros(positions);
+                        cells[i] = region.getCell(index);
+                        positions &= positions - 1;
                     }
+                    BitSet commonPotentialValues = BitSet.valueOf(new long[] {(tuple & 0xFFFF) << 1});
+                    // Potential hint found
+                    IndirectHint hint = createValueUniquenessHint(region, cells, commonPotentialValues);
+                    if (hint.isWorth() && !accu.add(hint))
+                        return false;
                 }
             }
         }
+        return true;
     }
 
     private IndirectHint createValueUniquenessHint(Grid.Region region, Cell[] cells,
@@ -21,23 +21,25 @@ public class NakedSingle implements DirectHintProducer {
      * corresponding hints
      */
     public void getHints(Grid grid, HintsAccumulator accu) throws InterruptedException {
-
-
-
-
-            for (int index = 0; index < 256; index++) {
-                Cell cell = grid.getCell(index%16,index/16);
-              if ( cell.getValue() == 0 ) {
-                // Get the cell's potential values
-                BitSet potentialValues = cell.getPotentialValues();
-                if (potentialValues.cardinality() == 1) {
+        for (int word = 0; word < 4; word++) {
+            // Cells having exactly one potential value, 64 at a time
+            long ones = 0L;
+            long twos = 0L;
+            for (int value = 1; value <= 16; value++) {
+                long cells = grid.getPotentialCells(value, word);
+                twos |= ones & cells;
+                ones |= cells;
+            }
+            for (long bits = ones & ~twos; bits != 0; bits &= bits - 1) {
+                int index = word * 64 + Long.numberOfTrailingZeros(bits);
+                if (grid.getValueAt(index) == 0) {
                     // One potential value -> solution found
-                //  int uniqueValue = potentialValues.nextSetBit(0);
-                    accu.add(new NakedSingleHint(this, null, cell, potentialValues.nextSetBit(0)));
+                    int value = Integer.numberOfTrailingZeros(grid.getPotentialMaskAt(index)) + 1;
+                    if (!accu.add(new NakedSingleHint(this, null, grid.getCell(index), value)))
+                        return;
                 }
-              }
             }
-
+        }
     }
 
     @Override
@@ -0,0 +1,156 @@
+/*
+ * Project: Sudoku Explainer
+ * Copyright (C) 2006-2009 Nicolas Juillerat
+ * Available under the terms of the Lesser General Public License (LGPL)
+ */
+package diuf.sudoku.solver.rules;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import diuf.sudoku.*;
+import diuf.sudoku.tools.*;
+
+/**
+ * The naked and hidden sets of all degrees of the regions of a grid,
+ * shared by all the {@link NakedSet} and {@link HiddenSet} producers,
+ * and the fishes of all degrees of each value, shared by all the
+ * {@link Fisherman} producers.
+ * <p>
+ * The sets of a region, or the fishes of a value in the rows or in the columns,
+ * are searched once for all the degrees, the first time a producer asks for
+ * them, and kept until the grid changes. The analysis is bound to the
+ * fingerprint of the grid (see {@link Grid#getFingerprint()}) rather than
+ * to a grid, so that the copies of a grid share it as well.
+ * The analyses of the last few grid states are kept, so that solvers working
+ * on different grids at the same time do not evict each other's one.
+ * The sets are returned in the format of {@link CommonTuples#getCommonTuples(int[], int)}.
+ */
+final class SubsetAnalysis {
+
+    /**
+     * Largest degree of the sets
+     */
+    private static final int MAX_DEGREE = 8;
+
+    /**
+     * Number of grid states whose analysis is kept
+     */
+    private static final int CACHE_SIZE = 16;
+
+    private static final int[] NONE = new int[0];
+
+    /**
+     * Analyses of the last grid states asked for, by fingerprint,
+     * from the least recently used one to the most recently used one
+     */
+    private static final Map<Long,SubsetAnalysis> cache =
+        new LinkedHashMap<Long,SubsetAnalysis>(CACHE_SIZE * 2, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long,SubsetAnalysis> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final AtomicReferenceArray<int[][]> nakedSets = new AtomicReferenceArray<int[][]>(48);
+    private final AtomicReferenceArray<int[][]> hiddenSets = new AtomicReferenceArray<int[][]>(48);
+    private final AtomicReferenceArray<int[][]> fishes = new AtomicReferenceArray<int[][]>(32);
+
+
+    /**
+     * Get the analysis of the given grid in its current state
+     * @param grid the grid
+     * @return the analysis of the grid
+     */
+    static SubsetAnalysis getInstance(Grid grid) {
+        Long fingerprint = grid.getFingerprint();
+        synchronized (cache) {
+            SubsetAnalysis result = cache.get(fingerprint);
+            if (result == null) {
+                result = new SubsetAnalysis();
+                cache.put(fingerprint, result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Get the naked sets of the given degree of a region: tuples of positions
+     * with a common tuple of potential values, of the same degree. Only the
+     * degrees up to half the number of empty cells of the region are searched.
+     * @param region the region, of the analysed grid
+     * @param degree the degree of the sets
+     * @return the sets, as tuples of positions and their potential values
+     */
+    int[] getNakedSets(Grid.Region region, int degree) {
+        int regionIndex = region.getRegionIndex();
+        int maxDegree = Math.min(MAX_DEGREE, region.getEmptyCellCount() / 2);
+        if (degree > maxDegree)
+            return NONE;
+        int[][] sets = nakedSets.get(regionIndex);
+        if (sets == null) {
+            int[] potentialValues = new int[16];
+            for (int i = 0; i < 16; i++)
+                potentialValues[i] = region.getCell(i).getPotentialMask();
+            sets = CommonTuples.getCommonTuples(potentialValues, maxDegree);
+            nakedSets.set(regionIndex, sets);
+        }
+        return sets[degree];
+    }
+
+    /**
+     * Get the hidden sets of the given degree of a region: tuples of values
+     * with a common tuple of potential positions, of the same degree. Only the
+     * degrees less than the number of empty cells of the region are searched.
+     * @param region the region, of the analysed grid
+     * @param degree the degree of the sets
+     * @return the sets, as tuples of values (from 0 to 15) and their
+     * potential positions
+     */
+    int[] getHiddenSets(Grid.Region region, int degree) {
+        int regionIndex = region.getRegionIndex();
+        int maxDegree = Math.min(MAX_DEGREE, region.getEmptyCellCount() - 1);
+        if (degree > maxDegree)
+            return NONE;
+        int[][] sets = hiddenSets.get(regionIndex);
+        if (sets == null) {
+            int[] potentialIndexes = new int[16];
+            for (int value = 1; value <= 16; value++)
+                potentialIndexes[value - 1] = region.getPotentialPositionsMask(value);
+            sets = CommonTuples.getCommonTuples(potentialIndexes, maxDegree);
+            hiddenSets.set(regionIndex, sets);
+        }
+        return sets[degree];
+    }
+
+    /**
+     * Get the fishes of the given degree of a value: tuples of lines with a
+     * common tuple of potential positions of the value, of the same degree.
+     * Only the degrees up to half the number of missing occurances of the
+     * value are searched.
+     * @param grid the analysed grid
+     * @param lineType the type of the lines, either {@link Grid#ROW} or {@link Grid#COLUMN}
+     * @param value the value
+     * @param degree the degree of the fishes
+     * @return the fishes, as tuples of line indexes and their potential positions
+     */
+    int[] getFishes(Grid grid, int lineType, int value, int degree) {
+        int maxDegree = Math.min(MAX_DEGREE, (16 - grid.getCountOccurancesOfValue(value)) / 2);
+        if (degree > maxDegree)
+            return NONE;
+        int fishIndex = (lineType == Grid.COLUMN ? 16 : 0) + value - 1;
+        int[][] sets = fishes.get(fishIndex);
+        if (sets == null) {
+            Grid.Region[] lines = grid.getRegions(lineType);
+            int[] potentialPositions = new int[16];
+            for (int i = 0; i < 16; i++)
+                potentialPositions[i] = lines[i].getPotentialPositionsMask(value);
+            sets = CommonTuples.getCommonTuples(potentialPositions, maxDegree);
+            fishes.set(fishIndex, sets);
+        }
+        return sets[degree];
+    }
+
+}
@@ -15,7 +15,7 @@ import diuf.sudoku.tools.*;
 /**
  * Implementation of the "XY-Wing" and "XYZ-Wing" solving techniques.
  */
-public class XYWing implements IndirectHintProducer {
+public class XYWing implements IndirectHintProducer, ConditionalHintProducer {
 
     private final boolean isXYZ;
 
@@ -37,32 +37,34 @@ public class XYWing implements IndirectHintProducer {
      * @param yzValues the potential values of the "YZ" cell
      * @return whether the three potential values set are forming an XY-Wing.
      */
-    private boolean isXYWing(BitSet xyValues, BitSet xzValues, BitSet yzValues) {
-        if (xyValues.cardinality() != 2 ||
-                xzValues.cardinality() != 2 ||
-                yzValues.cardinality() != 2)
+    private boolean isXYWing(int xyValues, int xzValues, int yzValues) {
+        if (Integer.bitCount(xyValues) != 2 ||
+                Integer.bitCount(xzValues) != 2 ||
+                Integer.bitCount(yzValues) != 2)
             return false;
-        BitSet union = (BitSet)xyValues.clone();
-        union.or(xzValues);
-        union.or(yzValues);
-        BitSet inter = (BitSet)xyValues.clone();
-        inter.and(xzValues);
-        inter.and(yzValues);
-        return union.cardinality() == 3 && inter.cardinality() == 0;
+        int union = xyValues | xzValues | yzValues;
+        int inter = xyValues & xzValues & yzValues;
+        return Integer.bitCount(union) == 3 && inter == 0;
     }
 
-    private boolean isXYZWing(BitSet xyValues, BitSet xzValues, BitSet yzValues) {
-        if (xyValues.cardinality() != 3 ||
-                xzValues.cardinality() != 2 ||
-                yzValues.cardinality() != 2)
+    private boolean isXYZWing(int xyValues, int xzValues, int yzValues) {
+        if (Integer.bitCount(xyValues) != 3 ||
+                Integer.bitCount(xzValues) != 2 ||
+                Integer.bitCount(yzValues) != 2)
             return false;
-        BitSet union = (BitSet)xyValues.clone();
-        union.or(xzValues);
-        union.or(yzValues);
-        BitSet inter = (BitSet)xyValues.clone();
-        inter.and(xzValues);
-        inter.and(yzValues);
-        return union.cardinality() == 3 && inter.cardinality() == 1;
+        int union = xyValues | xzValues | yzValues;
+        int inter = xyValues & xzValues & yzValues;
+        return Integer.bitCount(union) == 3 && Integer.bitCount(inter) == 1;
+    }
+
+    /**
+     * The XY (or XYZ) cell and the two other cells are distinct cells
+     * with two potential values (three for the XYZ cell).
+     */
+    public boolean isPossible(GridProfile profile) {
+        if (isXYZ)
+            return profile.getCellCount(3) >= 1 && profile.getCellCount(2) >= 2;
+        return profile.getCellCount(2) >= 3;
     }
 
     public void getHints(Grid grid, HintsAccumulator accu) throws InterruptedException {
@@ -70,36 +72,37 @@ public class XYWing implements IndirectHintProducer {
         for (int y = 0; y < 16; y++) {
             for (int x = 0; x < 16; x++) {
                 Cell xyCell = grid.getCell(x, y);
-                BitSet xyValues = xyCell.getPotentialValues();
-                if (xyValues.cardinality() == targetCardinality) {
+                int xyValues = xyCell.getPotentialMask();
+                if (Integer.bitCount(xyValues) == targetCardinality) {
                     // Potential XY cell found
-                    for (Cell xzCell : xyCell.getHouseCells()) {
-                        BitSet xzValues = xzCell.getPotentialValues();
-                        if (xzValues.cardinality() == 2) {
+                    int[] peers = Grid.getPeerIndexes(xyCell.getIndex());
+                    for (int xzIndex : peers) {
+                        int xzValues = grid.getPotentialMaskAt(xzIndex);
+                        if (Integer.bitCount(xzValues) == 2) {
                             // Potential XZ cell found. Do small test
-                            BitSet remValues = (BitSet)xyValues.clone();
-                            remValues.andNot(xzValues);
-                            if (remValues.cardinality() == 1) {
+                            if (Integer.bitCount(xyValues & ~xzValues) == 1) {
                                 // We have found XZ cell, look for YZ cell
-                                for (Cell yzCell : xyCell.getHouseCells()) {
-                                    BitSet yzValues = yzCell.getPotentialValues();
-                                    if (yzValues.cardinality() == 2) {
+                                Cell xzCell = grid.getCell(xzIndex);
+                                for (int yzIndex : peers) {
+                                    int yzValues = grid.getPotentialMaskAt(yzIndex);
+                                    if (Integer.bitCount(yzValues) == 2) {
+                                        Cell yzCell = grid.getCell(yzIndex);
                                         // Potential YZ cell found
                                         if (isXYZ) {
                                             if (isXYZWing(xyValues, xzValues, yzValues)) {
                                                 // Found XYZ-Wing pattern
-                                                XYWingHint hint = createHint(xyCell, xzCell, yzCell,
+                                                XYWingHint hint = createHint(grid, xyCell, xzCell, yzCell,
                                                         xzValues, yzValues);
-                                                if (hint.isWorth())
-                                                    accu.add(hint);
+                                                if (hint.isWorth() && !accu.add(hint))
+                                                    return;
                                             }
                                         } else {
                                             if (isXYWing(xyValues, xzValues, yzValues)) {
                                                 // Found XY-Wing pattern
-                                                XYWingHint hint = createHint(xyCell, xzCell, yzCell,
+                                                XYWingHint hint = createHint(grid, xyCell, xzCell, yzCell,
                                                         xzValues, yzValues);
-                                                if (hint.isWorth())
-                                                    accu.add(hint);
+                                                if (hint.isWorth() && !accu.add(hint))
+                                                    return;
                                             }
                                         }
                                     } // yzValues.cardinality() == 2
@@ -112,25 +115,25 @@ public class XYWing implements IndirectHintProducer {
         } // for y
     }
 
-    private XYWingHint createHint(Cell xyCell, Cell xzCell, Cell yzCell,
-            BitSet xzValues, BitSet yzValues) {
+    private XYWingHint createHint(Grid grid, Cell xyCell, Cell xzCell, Cell yzCell,
+            int xzValues, int yzValues) {
         // Get the "z" value
-        BitSet inter = (BitSet)xzValues.clone();
-        inter.and(yzValues);
-        int zValue = inter.nextSetBit(0);
+        int zValue = Integer.numberOfTrailingZeros(xzValues & yzValues) + 1;
 
         // Build list of removable potentials
         Map<Cell,BitSet> removablePotentials = new HashMap<Cell,BitSet>();
-        Set<Cell> victims = new LinkedHashSet<Cell>(xzCell.getHouseCells());
-        victims.retainAll(yzCell.getHouseCells());
-        if (isXYZ)
-            victims.retainAll(xyCell.getHouseCells());
-        victims.remove(xyCell);
-        victims.remove(xzCell);
-        victims.remove(yzCell);
-        for (Cell cell : victims) {
-            if (cell.hasPotentialValue(zValue))
-                removablePotentials.put(cell, SingletonBitSet.create(zValue));
+        for (int word = 0; word < 4; word++) {
+            // Victims: cells sharing a region with both the XZ and YZ cells
+            long victims = Grid.getPeerMask(xzCell.getIndex(), word)
+                    & Grid.getPeerMask(yzCell.getIndex(), word)
+                    & grid.getPotentialCells(zValue, word);
+            if (isXYZ)
+                victims &= Grid.getPeerMask(xyCell.getIndex(), word);
+            for (; victims != 0; victims &= victims - 1) {
+                Cell cell = grid.getCell(word * 64 + Long.numberOfTrailingZeros(victims));
+                if (cell != xyCell && cell != xzCell && cell != yzCell)
+                    removablePotentials.put(cell, SingletonBitSet.create(zValue));
+            }
         }
 
         // Create hint
@@ -6,7 +6,7 @@
 package diuf.sudoku.solver.rules.chaining;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.*;
 
 import diuf.sudoku.*;
 import diuf.sudoku.Grid.*;
@@ -27,8 +27,7 @@ public class Chaining implements IndirectHintProducer {
     private final int level;
     private final boolean parallel;
     private final int nestingLimit;
-    private Grid saveGrid = new Grid();
-    private List<IndirectHintProducer> otherRules;
+    private final List<IndirectHintProducer> otherRules;
 //  private Grid lastGrid = null;
 //  private Collection<ChainingHint> lastHints = null;
 
@@ -48,6 +47,29 @@ public class Chaining implements IndirectHintProducer {
         this.level = level;
         this.parallel = parallel;
         this.nestingLimit = nestingLimit;
+        this.otherRules = createOtherRules();
+    }
+
+    /**
+     * Create the rules used by the nested (advanced) implications of this
+     * level. There are none for level <tt>0</tt>.
+     */
+    private List<IndirectHintProducer> createOtherRules() {
+        List<IndirectHintProducer> result = new ArrayList<IndirectHintProducer>();
+        if (level > 0) {
+            result.add(new Locking(false));
+            result.add(new HiddenSet(2, false));
+            result.add(new NakedSet(2));
+            result.add(new Fisherman(2));
+            if (level == 2)
+                result.add(new Chaining(false, false, false, 0, false, 0)); // Forcing chains
+            if (level == 3)
+                result.add(new Chaining(true, false, false, 0, false, 0)); // Multiple forcing chains
+            if (level == 4)
+                // Dynamic Forcing Chains already cover Simple and Multiple Forcing Chains
+                result.add(new Chaining(true, true, false, nestingLimit, false, 0)); // Dynamic FC
+        }
+        return Collections.unmodifiableList(result);
     }
 
     boolean isDynamic() {
@@ -87,7 +109,7 @@ public class Chaining implements IndirectHintProducer {
      * @param grid the grid on which to search fro hints
      * @return the hints found
      */
-    protected List<ChainingHint> getHintList(Grid grid) {
+    protected List<ChainingHint> getHintList(Grid grid) throws InterruptedException {
         // TODO: implement an implications cache
         List<ChainingHint> result;
         if (isMultipleEnabled || isDynamic) {
@@ -125,16 +147,17 @@ public class Chaining implements IndirectHintProducer {
     }
 
     private List<ChainingHint> getLoopHintList(Grid grid, boolean isYChainEnabled,
-            boolean isXChainEnabled) {
+            boolean isXChainEnabled) throws InterruptedException {
         List<ChainingHint> result = new ArrayList<ChainingHint>();
         // Iterate on all empty cells
         for (int y = 0; y < 16; y++) {
             for (int x = 0; x < 16; x++) {
                 Cell cell = grid.getCell(x, y);
-//c             int cardinality = cell.getPotentialValues().cardinality();
+//c             int cardinality = cell.getPotentialCount();
                 if (cell.getValue() == 0) { // the cell is empty
-                int cardinality = cell.getPotentialValues().cardinality();
+                int cardinality = cell.getPotentialCount();
                     if (cardinality > 1) {
+                        Deadline.check();
                         // Iterate on all potential values that are not alone
                         for (int value = 1; value <= 16; value++) {
                             if (cell.hasPotentialValue(value)) {
@@ -156,7 +179,8 @@ public class Chaining implements IndirectHintProducer {
      * @param isXChainEnabled whether X-Links are used in "off to on" searches
      * @return the hints found
      */
-    private List<ChainingHint> getMultipleChainsHintList(Grid grid, Cell cell, int cardinality) {
+    private List<ChainingHint> getMultipleChainsHintList(Grid grid, Grid saveGrid, Cell cell,
+            int cardinality) throws InterruptedException {
         List<ChainingHint> result = new ArrayList<ChainingHint>();
                         // Prepare storage and accumulator for "Cell Reduction"
                         Map<Integer, LinkedSet<Potential>> valueToOn =
@@ -169,6 +193,7 @@ public class Chaining implements IndirectHintProducer {
                         // Iterate on all potential values that are not alone
                         for (int value = 1; value <= 16; value++) {
                             if (cell.hasPotentialValue(value)) {
+                                Deadline.check();
                                 // Do Binary chaining (same potential either on or off)
                                 Potential pOn = new Potential(cell, value, true);
                                 Potential pOff = new Potential(cell, value, false);
@@ -176,12 +201,12 @@ public class Chaining implements IndirectHintProducer {
                                 LinkedSet<Potential> onToOff = new LinkedSet<Potential>();
                                 boolean doDouble = (cardinality >= 3 && !isNisho && isDynamic);
                                 boolean doContradiction = isDynamic || isNisho;
-                                doBinaryChaining(grid, pOn, pOff, result, onToOn, onToOff,
+                                doBinaryChaining(grid, saveGrid, pOn, pOff, result, onToOn, onToOff,
                                         doDouble, doContradiction);
 
                                 if (!isNisho) {
                                     // Do region chaining
-                                    doRegionChainings(grid, result, cell, value, onToOn, onToOff);
+                                    doRegionChainings(grid, saveGrid, result, cell, value, onToOn, onToOff);
                                 }
 
                                 // Collect results for cell chaining
@@ -217,19 +242,20 @@ public class Chaining implements IndirectHintProducer {
         return result;
     }
 
-    private List<ChainingHint> getMultipleChainsHintList(Grid grid) {
+    private List<ChainingHint> getMultipleChainsHintList(Grid grid) throws InterruptedException {
         List<ChainingHint> result = new ArrayList<ChainingHint>();
         List<Cell> cellsToProcess = new ArrayList<Cell>();
+        Grid saveGrid = (parallel ? null : new Grid());
         // Iterate on all empty cells
         for (int y = 0; y < 16; y++) {
             for (int x = 0; x < 16; x++) {
                 Cell cell = grid.getCell(x, y);
-//              int cardinality = cell.getPotentialValues().cardinality();
+//              int cardinality = cell.getPotentialCount();
                 if (cell.getValue() == 0) { // the cell is empty
-                int cardinality = cell.getPotentialValues().cardinality();
+                int cardinality = cell.getPotentialCount();
                     if (cardinality > 2 || (cardinality > 1 && isDynamic)) {
                         if (!parallel) {
-                            result.addAll(getMultipleChainsHintList(grid, cell, cardinality));
+                            result.addAll(getMultipleChainsHintList(grid, saveGrid, cell, cardinality));
                         }
                         else {
                             cellsToProcess.add(cell);
@@ -241,46 +267,40 @@ public class Chaining implements IndirectHintProducer {
         if (!parallel) { return result; }
         if(cellsToProcess.isEmpty()) { return result; }
 
-        //process the collected cells in parallel
-        ConcurrentLinkedQueue<ChainingHint> parallelResult = new ConcurrentLinkedQueue<ChainingHint>();
-        List<MultipleChainsHintsCollector> threads = new ArrayList<MultipleChainsHintsCollector>();
-        Thread lastThread = null;
-        for(Cell cell : cellsToProcess) {
-            MultipleChainsHintsCollector t = new MultipleChainsHintsCollector(this, grid, cell, parallelResult, lastThread);
-            threads.add(t);
-            t.start();
-            lastThread = t;
-        }
-        try {
-            lastThread.join();
-        } catch (InterruptedException e) {}
-        result.addAll(parallelResult);
+        //process the collected cells in parallel, and gather the hints in cell order
+        SolverExecutor executor = SolverExecutor.getInstance();
+        List<Future<List<ChainingHint>>> futures = new ArrayList<Future<List<ChainingHint>>>();
+        for(Cell cell : cellsToProcess)
+            futures.add(executor.submit(new MultipleChainsHintsCollector(this, grid, cell)));
+        for (Future<List<ChainingHint>> future : futures)
+            result.addAll(SolverExecutor.join(future));
+        Deadline.check();
         return result;
     }
 
-    class MultipleChainsHintsCollector extends Thread {
+    class MultipleChainsHintsCollector implements Callable<List<ChainingHint>> {
         private Chaining chaining;
-        private ConcurrentLinkedQueue<ChainingHint> accumulator;
         private final Grid grid = new Grid();
         private final Cell cell;
-        private final Thread previousThread;
-        MultipleChainsHintsCollector(Chaining caller, Grid grid, Cell cell, ConcurrentLinkedQueue<ChainingHint> result, Thread lastThread) {
-            this.chaining = new Chaining(caller.isMultipleEnabled, caller.isDynamic, caller.isNisho, caller.level, false, caller.nestingLimit);
-            accumulator = result;
+        private final Deadline deadline = Deadline.getCurrent();
+        MultipleChainsHintsCollector(Chaining caller, Grid grid, Cell cell) {
+            this.chaining = caller;
             grid.copyTo(this.grid);
             this.cell = this.grid.getCell(cell.getX(), cell.getY());
-            previousThread = lastThread;
         }
-        @Override
-        public void run() {
-            int cardinality = this.cell.getPotentialValues().cardinality();
-            List<ChainingHint> result = chaining.getMultipleChainsHintList(this.grid, this.cell, cardinality);
-            if ( previousThread != null ) {
-                try {
-                    previousThread.join();
-                } catch (InterruptedException e) {}
+        public List<ChainingHint> call() {
+            int cardinality = this.cell.getPotentialCount();
+            List<ChainingHint> result = Collections.emptyList();
+            Deadline previous = Deadline.getCurrent();
+            Deadline.setCurrent(deadline);
+            try {
+                result = chaining.getMultipleChainsHintList(this.grid, new Grid(), this.cell, cardinality);
+            } catch (InterruptedException ex) {
+                // Deadline expired, checked by the caller
+            } finally {
+                Deadline.setCurrent(previous);
             }
-            accumulator.addAll(result);
+            return result;
         }
     }
 
@@ -314,9 +334,9 @@ public class Chaining implements IndirectHintProducer {
      * @param isXChainEnabled whether x-chains are enabled
      */
     private void doUnaryChaining(Grid grid, final Potential pOn, List<ChainingHint> result,
-            boolean isYChainEnabled, boolean isXChainEnabled) {
+            boolean isYChainEnabled, boolean isXChainEnabled) throws InterruptedException {
 
-        if (pOn.cell.getPotentialValues().cardinality() > 2
+        if (pOn.cell.getPotentialCount() > 2
                 && !isXChainEnabled)
             return; // Y-Cycles can only start if cell has 2 potential values
 
@@ -402,9 +422,10 @@ public class Chaining implements IndirectHintProducer {
      * potential is on.
      * @throws InterruptedException
      */
-    private void doBinaryChaining(Grid grid, Potential pOn, Potential pOff,
+    private void doBinaryChaining(Grid grid, Grid saveGrid, Potential pOn, Potential pOff,
             List<ChainingHint> result, LinkedSet<Potential> onToOn,
-            LinkedSet<Potential> onToOff, boolean doReduction, boolean doContradiction) {
+            LinkedSet<Potential> onToOff, boolean doReduction, boolean doContradiction)
+            throws InterruptedException {
 
         Potential[] absurdPotential = null;
         LinkedSet<Potential> offToOn = new LinkedSet<Potential>();
@@ -418,7 +439,7 @@ public class Chaining implements IndirectHintProducer {
 
         // Test p = "on"
         onToOn.add(pOn);
-        absurdPotential = doChaining(grid, onToOn, onToOff);
+        absurdPotential = doChaining(grid, saveGrid, onToOn, onToOff);
         if (doContradiction && absurdPotential != null) {
             // p cannot hold its value, because else it would lead to a contradiction
             BinaryChainingHint hint = createChainingOffHint(absurdPotential[0], absurdPotential[1],
@@ -429,7 +450,7 @@ public class Chaining implements IndirectHintProducer {
 
         // Test p = "off"
         offToOff.add(pOff);
-        absurdPotential = doChaining(grid, offToOn, offToOff);
+        absurdPotential = doChaining(grid, saveGrid, offToOn, offToOff);
         if (doContradiction && absurdPotential != null) {
             // p must hold its value, because else it would lead to a contradiction
             BinaryChainingHint hint = createChainingOnHint(absurdPotential[0], absurdPotential[1],
@@ -462,10 +483,11 @@ public class Chaining implements IndirectHintProducer {
 
     }
 
-    private void doRegionChainings(Grid grid, List<ChainingHint> result, Cell cell,
-            int value, LinkedSet<Potential> onToOn, LinkedSet<Potential> onToOff) {
-        for (Class<? extends Grid.Region> regionType : grid.getRegionTypes()) {
-            Grid.Region region = grid.getRegionAt(regionType, cell.getX(), cell.getY());
+    private void doRegionChainings(Grid grid, Grid saveGrid, List<ChainingHint> result, Cell cell,
+            int value, LinkedSet<Potential> onToOn, LinkedSet<Potential> onToOff)
+            throws InterruptedException {
+        for (int regionType = Grid.BLOCK; regionType <= Grid.COLUMN; regionType++) {
+            Grid.Region region = grid.getRegionAt(regionType, cell.getIndex());
             BitSet potentialPositions = region.getPotentialPositions(value);
 
             // Is this region worth ?
@@ -496,7 +518,7 @@ public class Chaining implements IndirectHintProducer {
                             LinkedSet<Potential> otherToOn = new LinkedSet<Potential>();
                             LinkedSet<Potential> otherToOff = new LinkedSet<Potential>();
                             otherToOn.add(other);
-                            doChaining(grid, otherToOn, otherToOff);
+                            doChaining(grid, saveGrid, otherToOn, otherToOff);
                             posToOn.put(pos, otherToOn);
                             posToOff.put(pos, otherToOff);
                             regionToOn.retainAll(otherToOn);
@@ -548,8 +570,8 @@ public class Chaining implements IndirectHintProducer {
         }
 
         // Second rule: other potential position for this value get off
-        for (Class<? extends Grid.Region> regionType : grid.getRegionTypes()) {
-            Grid.Region region = grid.getRegionAt(regionType, p.cell.getX(), p.cell.getY());
+        for (int regionType = Grid.BLOCK; regionType <= Grid.COLUMN; regionType++) {
+            Grid.Region region = grid.getRegionAt(regionType, p.cell.getIndex());
             for (int i = 0; i < 16; i++) {
                 Cell cell = region.getCell(i);
                 if (!cell.equals(p.cell) && cell.hasPotentialValue(p.value))
@@ -581,8 +603,7 @@ public class Chaining implements IndirectHintProducer {
 
     private void addHiddenParentsOfRegion(Potential p, Grid grid, Grid source,
             Grid.Region curRegion, LinkedSet<Potential> offPotentials) {
-        Grid.Region srcRegion = source.getRegionAt(curRegion.getClass(),
-                p.cell.getX(), p.cell.getY());
+        Grid.Region srcRegion = source.getRegion(curRegion.getRegionIndex());
         BitSet curPositions = curRegion.copyPotentialPositions(p.value);
         BitSet srcPositions = srcRegion.copyPotentialPositions(p.value);
         // Get positions of the potential value that have been removed
@@ -599,13 +620,16 @@ public class Chaining implements IndirectHintProducer {
     }
 
     static Potential.Cause getRegionCause(Region region) {
-        if (region instanceof Block)
+        switch (region.getRegionType()) {
+        case Grid.BLOCK:
             return Potential.Cause.HiddenBlock;
-        else if (region instanceof Column)
+        case Grid.COLUMN:
             return Potential.Cause.HiddenColumn;
-        else if (region instanceof Row)
+        case Grid.ROW:
             return Potential.Cause.HiddenRow;
-        return null;
+        default:
+            return null;
+        }
     }
 
     /**
@@ -642,14 +666,14 @@ public class Chaining implements IndirectHintProducer {
         //  partTypes.add(Grid.Row.class);
         //  partTypes.add(Grid.Column.class);
         //  for (Class<? extends Grid.Region> partType : partTypes) {
-            for (Class<? extends Grid.Region> partType : grid.getRegionTypes()) {
-                Grid.Region region = grid.getRegionAt(partType, p.cell.getX(), p.cell.getY());
-                BitSet potentialPositions = region.getPotentialPositions(p.value);
-                if (potentialPositions.cardinality() == 2) {
-                    int otherPosition = potentialPositions.nextSetBit(0);
+            for (int regionType = Grid.BLOCK; regionType <= Grid.COLUMN; regionType++) {
+                Grid.Region region = grid.getRegionAt(regionType, p.cell.getIndex());
+                int potentialPositions = region.getPotentialPositionsMask(p.value);
+                if (Integer.bitCount(potentialPositions) == 2) {
+                    int otherPosition = Integer.numberOfTrailingZeros(potentialPositions);
                     Cell otherCell = region.getCell(otherPosition);
                     if (otherCell.equals(p.cell)) {
-                        otherPosition = potentialPositions.nextSetBit(otherPosition+1);
+                        otherPosition = 31 - Integer.numberOfLeadingZeros(potentialPositions);
                         otherCell = region.getCell(otherPosition);
                     }
                     Potential pOn = new Potential(otherCell, p.value, true, p,
@@ -704,7 +728,8 @@ public class Chaining implements IndirectHintProducer {
             length++;
             while (!pendingOff.isEmpty()) {
                 Potential p = pendingOff.remove(0);
-                Set<Potential> makeOn = getOffToOn(grid, p, saveGrid, toOff,
+                // The grid is not modified by cycles: there are no hidden parents
+                Set<Potential> makeOn = getOffToOn(grid, p, grid, toOff,
                         isYChainEnabled, isXChainEnabled);
                 for (Potential pOn : makeOn) {
                     if (length >= 4 && pOn.equals(source)) {
@@ -750,7 +775,8 @@ public class Chaining implements IndirectHintProducer {
             }
             while (!pendingOff.isEmpty()) {
                 Potential p = pendingOff.remove(0);
-                Set<Potential> makeOn = getOffToOn(grid, p, saveGrid, toOff,
+                // The grid is not modified by static chains: there are no hidden parents
+                Set<Potential> makeOn = getOffToOn(grid, p, grid, toOff,
                         isYChainEnabled, true);
                 for (Potential pOn : makeOn) {
                     Potential pOff = new Potential(pOn.cell, pOn.value, false); // Conjugate
@@ -776,18 +802,23 @@ public class Chaining implements IndirectHintProducer {
      * <p>
      * Both sets must be disjoined, and remain disjoined after this call.
      * @param grid the grid
+     * @param saveGrid a scratch grid, in which the grid is saved before it is
+     * modified by dynamic chains. Its content is only used during this call.
      * @param toOn the potentials that are assumed to be "on"
      * @param toOff the potentials that are assumed to be "off"
      * @return <code>null</code> on success; the first potential that would have
      * to be both "on" and "off" else.
+     * @throws InterruptedException if the current deadline expired. The grid
+     * is restored in that case too.
      */
-    private Potential[] doChaining(Grid grid, LinkedSet<Potential> toOn,
-            LinkedSet<Potential> toOff) {
+    private Potential[] doChaining(Grid grid, Grid saveGrid, LinkedSet<Potential> toOn,
+            LinkedSet<Potential> toOff) throws InterruptedException {
         grid.copyTo(saveGrid);
         try {
             List<Potential> pendingOn = new LinkedList<Potential>(toOn);
             List<Potential> pendingOff = new LinkedList<Potential>(toOff);
             while (!pendingOn.isEmpty() || !pendingOff.isEmpty()) {
+                Deadline.check();
                 if (!pendingOn.isEmpty()) {
                     Potential p = pendingOn.remove(0);
                     Set<Potential> makeOff = getOnToOff(grid, p, !isNisho);
@@ -842,74 +873,58 @@ public class Chaining implements IndirectHintProducer {
      * Get all non-trivial implications (involving fished, naked/hidden sets, etc).
      */
     private Collection<Potential> getAdvancedPotentials(final Grid grid, final Grid source,
-            final LinkedSet<Potential> offPotentials) {
+            final LinkedSet<Potential> offPotentials) throws InterruptedException {
         final Collection<Potential> result = new ArrayList<Potential>();
-        if (otherRules == null) {
-            otherRules = new ArrayList<IndirectHintProducer>();
-            otherRules.add(new Locking(false));
-            otherRules.add(new HiddenSet(2, false));
-            otherRules.add(new NakedSet(2));
-            otherRules.add(new Fisherman(2));
-            if (level == 2)
-                otherRules.add(new Chaining(false, false, false, 0, false, 0)); // Forcing chains
-            if (level == 3)
-                otherRules.add(new Chaining(true, false, false, 0, false, 0)); // Multiple forcing chains
-            if (level == 4)
-                // Dynamic Forcing Chains already cover Simple and Multiple Forcing Chains
-                otherRules.add(new Chaining(true, true, false, nestingLimit, false, 0)); // Dynamic FC
-        }
         int index = 0;
         while (result.isEmpty() && index < otherRules.size()) {
+            Deadline.check();
             IndirectHintProducer rule = otherRules.get(index);
-            try {
-                rule.getHints(grid, new HintsAccumulator() {
-                    public void add(Hint hint0) {
-                        IndirectHint hint = (IndirectHint)hint0;
-                        Collection<Potential> parents =
-                            ((HasParentPotentialHint)hint).getRuleParents(source, grid);
-                        /*
-                         * If no parent can be found, the rule probably already exists without
-                         * the chain. Therefore it is useless to include it in the chain.
-                         */
-                        if (!parents.isEmpty()) {
-                            ChainingHint nested = null;
-                            if (hint instanceof ChainingHint)
-                                nested = (ChainingHint)hint;
-                            Map<Cell,BitSet> removable = hint.getRemovablePotentials();
-//a                         assert !removable.isEmpty();
-                            List<Cell> sortedRemKeys=new ArrayList<Cell>(removable.keySet());
-                            Collections.sort(sortedRemKeys, new Comparator<Cell>() {
-                                public int compare(Cell c1, Cell c2) {
-                                    int y1 = c1.getY();
-                                    int y2 = c2.getY();
-                                    if (y1 != y2) return y1 - y2;
-                                    int x1 = c1.getX();
-                                    int x2 = c2.getX();
-                                    if (x1 != x2) return x1 - x2;
-                                    return removable.get(c1).nextSetBit(0) - removable.get(c2).nextSetBit(0);
-                                }
-                            });
-                            for (Cell cell : sortedRemKeys) {
-//                          for (Cell cell : removable.keySet()) {
-                                BitSet values = removable.get(cell);
-                                for (int value = values.nextSetBit(0); value >= 0; value = values.nextSetBit(value+1)) {
-                                //  Potential.Cause cause = Potential.Cause.Advanced;
-                                    Potential toOff = new Potential(cell, value, false, Potential.Cause.Advanced,
-                                            hint.toString(), nested);
-                                    for (Potential p : parents) {
-                                        Potential real = offPotentials.get(p);
-//a                                     assert real != null;
-                                        toOff.parents.add(real);
-                                    }
-                                    result.add(toOff);
+            rule.getHints(grid, new HintsAccumulator() {
+                public boolean add(Hint hint0) {
+                    IndirectHint hint = (IndirectHint)hint0;
+                    Collection<Potential> parents =
+                        ((HasParentPotentialHint)hint).getRuleParents(source, grid);
+                    /*
+                     * If no parent can be found, the rule probably already exists without
+                     * the chain. Therefore it is useless to include it in the chain.
+                     */
+                    if (!parents.isEmpty()) {
+                        ChainingHint nested = null;
+                        if (hint instanceof ChainingHint)
+                            nested = (ChainingHint)hint;
+                        Map<Cell,BitSet> removable = hint.getRemovablePotentials();
+//a                     assert !removable.isEmpty();
+                        List<Cell> sortedRemKeys=new ArrayList<Cell>(removable.keySet());
+                        Collections.sort(sortedRemKeys, new Comparator<Cell>() {
+                            public int compare(Cell c1, Cell c2) {
+                                int y1 = c1.getY();
+                                int y2 = c2.getY();
+                                if (y1 != y2) return y1 - y2;
+                                int x1 = c1.getX();
+                                int x2 = c2.getX();
+                                if (x1 != x2) return x1 - x2;
+                                return removable.get(c1).nextSetBit(0) - removable.get(c2).nextSetBit(0);
+                            }
+                        });
+                        for (Cell cell : sortedRemKeys) {
+//                      for (Cell cell : removable.keySet()) {
+                            BitSet values = removable.get(cell);
+                            for (int value = values.nextSetBit(0); value >= 0; value = values.nextSetBit(value+1)) {
+                            //  Potential.Cause cause = Potential.Cause.Advanced;
+                                Potential toOff = new Potential(cell, value, false, Potential.Cause.Advanced,
+                                        hint.toString(), nested);
+                                for (Potential p : parents) {
+                                    Potential real = offPotentials.get(p);
+//a                                 assert real != null;
+                                    toOff.parents.add(real);
                                 }
+                                result.add(toOff);
                             }
                         }
                     }
-                });
-            } catch(InterruptedException ex) {
-                ex.printStackTrace();
-            }
+                    return true;
+                }
+            });
             index++;
         }
         return result;
@@ -935,7 +950,8 @@ public class Chaining implements IndirectHintProducer {
         while (!p.parents.isEmpty()) {
 //a         assert p.parents.size() == 1;
             Cell srcCell = grid.getCell(p.cell.getX(), p.cell.getY());
-            for (Cell cell : srcCell.getHouseCells()) {
+            for (int peer : Grid.getPeerIndexes(srcCell.getIndex())) {
+                Cell cell = grid.getCell(peer);
                 if (!cells.contains(cell) && cell.hasPotentialValue(p.value)) {
                     if (p.isOn)
                         cancelForw.add(new Potential(cell, p.value, false));
@@ -1114,8 +1130,10 @@ public class Chaining implements IndirectHintProducer {
 //      grid.copyTo(lastGrid);
         // This filters hints that are equal:
         Collection<ChainingHint> lastHints = new LinkedHashSet<ChainingHint>(result);
-        for (IndirectHint hint : lastHints)
-            accu.add(hint);
+        for (IndirectHint hint : lastHints) {
+            if (!accu.add(hint))
+                return;
+        }
     }
 
 }
@@ -203,16 +203,16 @@ public abstract class ChainingHint extends IndirectHint implements Rule, HasPare
         return result;
     }
 
-    private static Class<? extends Region> getCauseRegion(Potential.Cause cause) {
+    private static int getCauseRegion(Potential.Cause cause) {
         switch(cause) {
         case HiddenBlock:
-            return Block.class;
+            return Grid.BLOCK;
         case HiddenColumn:
-            return Column.class;
+            return Grid.COLUMN;
         case HiddenRow:
-            return Row.class;
+            return Grid.ROW;
         default:
-            return null;
+            return -1;
         }
     }
 
@@ -259,7 +259,7 @@ public abstract class ChainingHint extends IndirectHint implements Rule, HasPare
                                     result.add(new Potential(actCell, value, false));
                             }
                         } else { // Hidden single
-                            Region r = currentGrid.getRegionAt(getCauseRegion(cause), curCell);
+                            Region r = currentGrid.getRegionAt(getCauseRegion(cause), curCell.getIndex());
                             for (int i = 0; i < 16; i++) {
                                 Cell actCell = r.getCell(i);
                                 Cell initCell = initialGrid.getCell(actCell.getX(), actCell.getY());
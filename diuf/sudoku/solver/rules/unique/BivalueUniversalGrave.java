@@ -16,32 +16,37 @@ import diuf.sudoku.tools.*;
  * Implementation of the Bivalue Universal Grave solving technique.
  * Supports types 1 to 4.
  */
-public class BivalueUniversalGrave implements IndirectHintProducer {
+public class BivalueUniversalGrave implements IndirectHintProducer, ConditionalHintProducer {
 
-    private final Grid temp = new Grid();
+    /**
+     * There is no BUG cell without a cell with three potential values or more
+     */
+    public boolean isPossible(GridProfile profile) {
+        return profile.getCellCountFrom(3) >= 1;
+    }
 
     public void getHints(Grid grid, HintsAccumulator accu) throws InterruptedException {
+        Grid temp = new Grid();
         grid.copyTo(temp);
         List<Cell> bugCells = new ArrayList<Cell>();
         Map<Cell, BitSet> bugValues = new HashMap<Cell, BitSet>();
         BitSet allBugValues = new BitSet(16);
-        Set<Cell> commonCells = null;
+        long[] commonCellsMask = null; // Cells controlled by all bug cells
         for (Class<? extends Grid.Region> regionType : grid.getRegionTypes()) {
             Grid.Region[] regions = grid.getRegions(regionType);
             for (int i = 0; i < regions.length; i++) {
                 Grid.Region region = regions[i];
                 for (int value = 1; value <= 16; value++) {
                     // Possible positions of a value in a region (row/column/block):
-                    BitSet positions = region.getPotentialPositions(value);
-                    int cardinality = positions.cardinality();
+                    int positions = region.getPotentialPositionsMask(value);
+                    int cardinality = Integer.bitCount(positions);
                     if (cardinality != 0 && cardinality != 2) {
                         // The value has not zero or two positions in the region
                         // Look for bug cells
                         List<Cell> newBugCells = new ArrayList<Cell>();
-                        for (int index = positions.nextSetBit(0); index >= 0;
-                                index = positions.nextSetBit(index + 1)) {
-                            Cell cell = region.getCell(index);
-                            int cellCardinality = cell.getPotentialValues().cardinality();
+                        for (int bits = positions; bits != 0; bits &= bits - 1) {
+                            Cell cell = region.getCell(Integer.numberOfTrailingZeros(bits));
+                            int cellCardinality = cell.getPotentialCount();
                             if (cellCardinality >= 3)
                                 newBugCells.add(cell);
                         }
@@ -61,13 +66,20 @@ public class BivalueUniversalGrave implements IndirectHintProducer {
                             allBugValues.set(value);
                             Cell twin = temp.getCell(cell.getX(), cell.getY());
                             twin.removePotentialValue(value);
-                            if (commonCells == null)
-                                commonCells = new LinkedHashSet<Cell>(cell.getHouseCells());
-                            else
-                                commonCells.retainAll(cell.getHouseCells());
-                            commonCells.removeAll(bugCells);
+                            int index = cell.getIndex();
+                            if (commonCellsMask == null) {
+                                commonCellsMask = new long[4];
+                                Arrays.fill(commonCellsMask, -1L);
+                            }
+                            boolean isCommonEmpty = true;
+                            for (int word = 0; word < 4; word++) {
+                                // A cell is not in its own house: bug cells are removed
+                                commonCellsMask[word] &= Grid.getPeerMask(index, word);
+                                if (commonCellsMask[word] != 0)
+                                    isCommonEmpty = false;
+                            }
                             if (bugCells.size() > 1 && allBugValues.cardinality() > 1
-                                    && commonCells.isEmpty())
+                                    && isCommonEmpty)
                                 return; // None of type 1, 2 or 3
                         }
                         if (newBugCells.isEmpty())
@@ -84,7 +96,7 @@ public class BivalueUniversalGrave implements IndirectHintProducer {
         for (int y = 0; y < 16; y++) {
             for (int x = 0; x < 16; x++) {
                 Cell cell = temp.getCell(x, y);
-                if (cell.getValue() == 0 && cell.getPotentialValues().cardinality() != 2)
+                if (cell.getValue() == 0 && cell.getPotentialCount() != 2)
                     return; // Not a BUG
             }
         }
@@ -96,43 +108,54 @@ public class BivalueUniversalGrave implements IndirectHintProducer {
                 Grid.Region region = regions[i];
                 for (int value = 1; value <= 16; value++) {
                     // Possible positions of a value in a region (row/column/block):
-                    BitSet positions = region.getPotentialPositions(value);
-                    int cardinality = positions.cardinality();
+                    int cardinality = Integer.bitCount(region.getPotentialPositionsMask(value));
                     if (cardinality != 0 && cardinality != 2)
                         return; // Not a BUG
                 }
             }
         }
 
+        // Cells controlled by all bug cells, in the house order of the first one
+        Set<Cell> commonCells = null;
+        if (commonCellsMask != null) {
+            commonCells = new LinkedHashSet<Cell>();
+            for (int peer : Grid.getPeerIndexes(bugCells.get(0).getIndex())) {
+                if ((commonCellsMask[peer >> 6] & (1L << (peer & 63))) != 0)
+                    commonCells.add(grid.getCell(peer));
+            }
+        }
         if (bugCells.size() == 1) {
             // Yeah, potential BUG type-1 pattern found
             addBug1Hint(accu, bugCells, allBugValues);
         } else if (allBugValues.cardinality() == 1) {
             // Yeah, potential BUG type-2 or type-4 pattern found
-            addBug2Hint(accu, bugCells, allBugValues, commonCells);
+            if (!addBug2Hint(accu, bugCells, allBugValues, commonCells))
+                return;
             if (bugCells.size() == 2)
                 // Potential BUG type-4 pattern found
                 addBug4Hint(accu, bugCells, bugValues, allBugValues, commonCells, grid);
         } else if (commonCells != null && !commonCells.isEmpty()) {
-            if (bugCells.size() == 2)
+            if (bugCells.size() == 2) {
                 // Potential BUG type-4 pattern found
-                addBug4Hint(accu, bugCells, bugValues, allBugValues, commonCells, grid);
+                if (!addBug4Hint(accu, bugCells, bugValues, allBugValues, commonCells, grid))
+                    return;
+            }
             // Yeah, potential BUG type-3 pattern found
             addBug3Hint(accu, bugCells, bugValues, allBugValues, commonCells, grid);
         }
     }
 
-    private void addBug1Hint(HintsAccumulator accu, List<Cell> bugCells, BitSet extraValues) throws InterruptedException {
+    private boolean addBug1Hint(HintsAccumulator accu, List<Cell> bugCells, BitSet extraValues) throws InterruptedException {
         Cell bugCell = bugCells.get(0);
         Map<Cell, BitSet> removablePotentials = new HashMap<Cell, BitSet>();
         BitSet removable = (BitSet)bugCell.getPotentialValues().clone();
         removable.andNot(extraValues);
         removablePotentials.put(bugCell, removable);
         IndirectHint hint = new Bug1Hint(this, removablePotentials, bugCell, extraValues);
-        accu.add(hint);
+        return accu.add(hint);
     }
 
-    private void addBug2Hint(HintsAccumulator accu, List<Cell> bugCells, BitSet extraValues,
+    private boolean addBug2Hint(HintsAccumulator accu, List<Cell> bugCells, BitSet extraValues,
             Set<Cell> commonCells) throws InterruptedException {
         int value = extraValues.nextSetBit(0);
         // Cells found ?
@@ -147,12 +170,13 @@ public class BivalueUniversalGrave implements IndirectHintProducer {
                 Cell[] arrCells = new Cell[bugCells.size()];
                 bugCells.toArray(arrCells);
                 IndirectHint hint = new Bug2Hint(this, removablePotentials, arrCells, value);
-                accu.add(hint);
+                return accu.add(hint);
             }
         }
+        return true;
     }
 
-    private void addBug3Hint(HintsAccumulator accu, List<Cell> bugCells,
+    private boolean addBug3Hint(HintsAccumulator accu, List<Cell> bugCells,
             Map<Cell, BitSet> extraValues, BitSet allExtraValues, Set<Cell> commonCells,
             Grid grid) throws InterruptedException {
         for (Class<? extends Grid.Region> regionType : grid.getRegionTypes()) {
@@ -224,7 +248,8 @@ public class BivalueUniversalGrave implements IndirectHintProducer {
                                             bugCells.toArray(arrCells);
                                             IndirectHint hint = new Bug3Hint(this, removablePotentials, arrCells,
                                                     nakedCells, extraValues, allExtraValues, nakedSet, region);
-                                            accu.add(hint);
+                                            if (!accu.add(hint))
+                                                return false;
                                         }
                                     } // if (!erasable.isEmpty())
                                 } // if (nakedSet != null)
@@ -234,9 +259,10 @@ public class BivalueUniversalGrave implements IndirectHintProducer {
                 } // for (degree)
             } // if (region != null)
         } // for (regionType)
+        return true;
     }
 
-    private void addBug4Hint(HintsAccumulator accu, List<Cell> bugCells,
+    private boolean addBug4Hint(HintsAccumulator accu, List<Cell> bugCells,
             Map<Cell, BitSet> extraValues, BitSet allExtraValues, Set<Cell> commonCells,
             Grid grid) throws InterruptedException {
         // Test for a common, non-bug value in both cells
@@ -247,7 +273,7 @@ public class BivalueUniversalGrave implements IndirectHintProducer {
         common.and(c2.getPotentialValues());
         common.andNot(allExtraValues);
         if (common.cardinality() != 1)
-            return; // No BUG type 4
+            return true; // No BUG type 4
 
         for (Class<? extends Grid.Region> regionType : grid.getRegionTypes()) {
             // Look for a region of this type shared by all bugCells
@@ -277,9 +303,11 @@ public class BivalueUniversalGrave implements IndirectHintProducer {
                 removablePotentials.put(c2, b2);
                 IndirectHint hint = new Bug4Hint(this, removablePotentials, c1, c2, extraValues,
                         allExtraValues, value, region);
-                accu.add(hint);
+                if (!accu.add(hint))
+                    return false;
             }
         }
+        return true;
     }
 
     @Override
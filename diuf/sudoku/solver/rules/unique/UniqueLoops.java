@@ -16,11 +16,18 @@ import diuf.sudoku.tools.*;
  * Support types 1-4.
  * Skewed (non-orthogonal) loops (very rare) are also detected.
  */
-public class UniqueLoops implements IndirectHintProducer {
+public class UniqueLoops implements IndirectHintProducer, ConditionalHintProducer {
 
 //  private Grid lastGrid = new Grid();
 //  private List<UniqueLoopHint> lastResult = null;
 
+    /**
+     * Loops are only searched from cells with two potential values
+     */
+    public boolean isPossible(GridProfile profile) {
+        return profile.getCellCount(2) >= 1;
+    }
+
     public void getHints(Grid grid, HintsAccumulator accu) throws InterruptedException {
         List<UniqueLoopHint> hints;
 //      if (grid.equals(lastGrid))
@@ -40,8 +47,10 @@ public class UniqueLoops implements IndirectHintProducer {
         });
 //      grid.copyTo(lastGrid);
 //      lastResult = hints;
-        for (UniqueLoopHint hint : hints)
-            accu.add(hint);
+        for (UniqueLoopHint hint : hints) {
+            if (!accu.add(hint))
+                return;
+        }
     }
 
     private List<UniqueLoopHint> getHints(Grid grid) {
@@ -63,7 +72,7 @@ public class UniqueLoops implements IndirectHintProducer {
                             // This is a unique loop. Get cells with more than 2 potentials
                             List<Cell> extraCells = new ArrayList<Cell>(2);
                             for (Cell loopCell : loop) {
-                                if (loopCell.getPotentialValues().cardinality() > 2)
+                                if (loopCell.getPotentialCount() > 2)
                                     extraCells.add(loopCell);
                             }
                             if (extraCells.size() == 1) {
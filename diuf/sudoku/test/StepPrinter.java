@@ -0,0 +1,167 @@
+/*
+ * Project: Sudoku Explainer
+ * Copyright (C) 2006-2009 Nicolas Juillerat
+ * Available under the terms of the Lesser General Public License (LGPL)
+ */
+package diuf.sudoku.test;
+
+import java.util.*;
+
+import diuf.sudoku.*;
+import diuf.sudoku.solver.*;
+
+/**
+ * Step listener printing the steps of a solve, as done by the
+ * {@link hints} and {@link pencilmarks} entry points.
+ * <p>
+ * For each step, the grid, the difficulty and the hint are printed on
+ * the standard output, and the difficulty and the hint on the error output.
+ * Optionally, the time spent on the step is printed as well, and the pencil
+ * marks are printed before the step.
+ */
+public class StepPrinter implements StepListener {
+
+    private final String digits;
+    private final boolean isTimed;
+    private final boolean isPencilMarks;
+
+    /**
+     * Create a new step printer
+     * @param puzzleformat the format of the values: 1 for 0-9A-F, 2 for
+     * 1-9A-G, any other value for A-P
+     * @param isTimed whether to print the time spent on each step
+     * @param isPencilMarks whether to print the pencil marks before each step
+     */
+    public StepPrinter(int puzzleformat, boolean isTimed, boolean isPencilMarks) {
+        if (puzzleformat == 1)
+            this.digits = ".0123456789ABCDEF";
+        else if (puzzleformat == 2)
+            this.digits = ".123456789ABCDEFG";
+        else
+            this.digits = ".ABCDEFGHIJKLMNOP";
+        this.isTimed = isTimed;
+        this.isPencilMarks = isPencilMarks;
+    }
+
+    public void stepStarted(Grid grid) {
+        if (isPencilMarks)
+            printPencilMarks(grid);
+    }
+
+    public void stepSolved(Hint hint, double difficulty, long nanos, Grid grid) {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < 256; i++)
+            s.append(digits.charAt(grid.getValueAt(i)));
+        s.append(' ');
+        if (isTimed) {
+            long tt = nanos / 1000000;
+            long ms = tt % 1000; tt = tt / 1000;
+            long ss = tt % 60;   tt = tt / 60;
+            long mm = tt % 60;   long hh = tt / 60;
+            if (hh < 10) s.append('0');
+            s.append(hh).append(':');
+            if (mm < 10) s.append('0');
+            s.append(mm).append(':');
+            if (ss < 10) s.append('0');
+            s.append(ss).append('.');
+            if (ms < 100) s.append('0');
+            if (ms < 10) s.append('0');
+            s.append(ms).append(' ');
+        }
+        int w = (int)((difficulty + 0.05) * 10);
+        int p = w % 10;
+        w /= 10;
+        System.err.println("" + w + "." + p + ", " + hint.toString());
+        System.err.flush();
+        s.append(w).append('.').append(p);
+        s.append(", ").append(hint.toString2());
+        if (hint instanceof IndirectHint) {
+            IndirectHint iHint = (IndirectHint)hint;
+            if (iHint.isWorth()) {
+                int countCells = 0;
+                Map<Cell, BitSet> getPots = iHint.getRemovablePotentials();
+                Map<Integer, BitSet> remPots = new TreeMap<Integer, BitSet>();
+                for (Cell cell : getPots.keySet())
+                    remPots.put(cell.getIndex(), getPots.get(cell));
+                for (int cellindex : remPots.keySet()) {
+                    BitSet cellPots = remPots.get(cellindex);
+                    s.append(countCells == 0 ? ":" : ",");
+                    s.append(" r").append(cellindex / 16 + 1).append('c').append(cellindex % 16 + 1).append("<>");
+                    int countPots = 0;
+                    for (int pv = cellPots.nextSetBit(1); pv >= 0 && pv <= 16; pv = cellPots.nextSetBit(pv + 1)) {
+                        if (countPots != 0)
+                            s.append(',');
+                        s.append(pv);
+                        countPots++;
+                    }
+                    countCells++;
+                }
+                Cell cell = iHint.getCell();
+                if (cell != null)
+                    s.append(", r").append(cell.getY() + 1).append('c').append(cell.getX() + 1)
+                            .append('=').append(iHint.getValue());
+            }
+        }
+        if (hint instanceof DirectHint) {
+            DirectHint dHint = (DirectHint)hint;
+            Cell cell = dHint.getCell();
+            if (cell != null)
+                s.append(": r").append(cell.getY() + 1).append('c').append(cell.getX() + 1)
+                        .append('=').append(dHint.getValue());
+        }
+        System.out.println(s);
+        System.out.flush();
+    }
+
+    private void printPencilMarks(Grid grid) {
+        int crd = 1;
+        for (int i = 0; i < 256; i++) {
+            int n = Integer.bitCount(grid.getPotentialMaskAt(i));
+            if (n > crd)
+                crd = n;
+        }
+        if (crd <= 1)
+            return;
+        StringBuilder line = new StringBuilder("+");
+        for (int j = 0; j < 4; j++) {
+            for (int k = 0; k < 4; k++) {
+                line.append('-');
+                for (int l = 0; l < crd; l++)
+                    line.append('-');
+            }
+            line.append("-+");
+        }
+        for (int i = 0; i < 4; i++) {
+            System.out.println(line);
+            for (int j = 0; j < 4; j++) {
+                StringBuilder s = new StringBuilder("|");
+                for (int k = 0; k < 4; k++) {
+                    for (int l = 0; l < 4; l++) {
+                        s.append(' ');
+                        int c = ((((i * 4) + j) * 4) + k) * 4 + l;
+                        int n = grid.getValueAt(c);
+                        int cnt;
+                        if (n != 0) {
+                            s.append(digits.charAt(n));
+                            cnt = 1;
+                        } else {
+                            int mask = grid.getPotentialMaskAt(c);
+                            cnt = Integer.bitCount(mask);
+                            for (int pv = 1; pv <= 16; pv++) {
+                                if ((mask & (1 << (pv - 1))) != 0)
+                                    s.append(digits.charAt(pv));
+                            }
+                        }
+                        for (int pad = cnt; pad < crd; pad++)
+                            s.append(' ');
+                    }
+                    s.append(" |");
+                }
+                System.out.println(s);
+            }
+        }
+        System.out.println(line);
+        System.out.flush();
+    }
+
+}
@@ -118,7 +118,7 @@ public class hints {
                     solver.want = 0;
                     solver.rebuildPotentialValues();
                     try {
-                        solver.getHintsHint();
+                        solver.getDifficulty(new StepPrinter(0, true, false));
                     } catch (UnsupportedOperationException ex) {
                         solver.difficulty = solver.pearl = solver.diamond = 0.0;
                     }
@@ -125,7 +125,7 @@ public class pencilmarks {
                     solver.want = 0;
                     solver.rebuildPotentialValues();
                     try {
-                        solver.getPencilMarks( puzzleformat);
+                        solver.getDifficulty(new StepPrinter(puzzleformat, false, true));
                     } catch (UnsupportedOperationException ex) {
                         solver.difficulty = solver.pearl = solver.diamond = 0.0;
                     }
@@ -31,7 +31,7 @@ public class serate {
         System.err.println("  serate - Sudoku Explainer command line rating");
         System.err.println("");
         System.err.println("SYNOPSIS");
-        System.err.println("  serate [ --diamond ] [ --format=FORMAT ] [ --input=FILE ] [ --output=FILE ] [ --pearl ] [ puzzle ... ]");
+        System.err.println("  serate [ --diamond ] [ --format=FORMAT ] [ --input=FILE ] [ --output=FILE ] [ --pearl ] [ --pool=COUNT ] [ --singles ] [ --threads=COUNT ] [ --timeout=SECONDS ] [ puzzle ... ]");
         System.err.println("");
         System.err.println("DESCRIPTION");
         System.err.println("  serate is a Sudoku Explainer command line entry point that rates one or more");
@@ -58,6 +58,8 @@ public class serate {
         System.err.println("        %e  The elapsed time to rate the puzzle.");
         System.err.println("        %g  The puzzle grid in 256-character [0-9] form.");
         System.err.println("        %n  The input puzzle ordinal, counting from 1.");
+        System.err.println("        %o  The outcome of the rating: ok, timeout if the --timeout was reached,");
+        System.err.println("            or error.  On timeout the ratings are those of the steps done so far.");
         System.err.println("        %p  The pearl rating.  This is the highest ER of the methods leading");
         System.err.println("            to the first cell placement.");
         System.err.println("        %r  The puzzle rating.  This is the highest ER of the methods leading");
@@ -75,6 +77,19 @@ public class serate {
         System.err.println("      Write output to FILE instead of the standard output.");
         System.err.println("  -p, --pearl");
         System.err.println("      Terminate rating if the puzzle is not a pearl.");
+        System.err.println("  -P, --pool=COUNT");
+        System.err.println("      Use at most COUNT background threads, for the --threads option and for");
+        System.err.println("      the parallel search of the forcing chains.  By default, one thread per");
+        System.err.println("      processor is used.");
+        System.err.println("  -s, --singles");
+        System.err.println("      Apply all the available singles of a kind at once instead of one by one.");
+        System.err.println("      The ratings are the same, but easy puzzles are rated faster.");
+        System.err.println("  -t, --threads=COUNT");
+        System.err.println("      Run up to COUNT solving techniques at the same time when looking for");
+        System.err.println("      the next step.  The ratings are the same as with the default of 1.");
+        System.err.println("  -T, --timeout=SECONDS");
+        System.err.println("      Stop rating a puzzle after SECONDS seconds, and go on with the next one.");
+        System.err.println("      The outcome of the rating is then timeout, see the %o format conversion.");
         System.err.println("  -V, --version");
         System.err.println("      Print the Sudoku Explainer (serate) version and exit.");
         System.err.println("");
@@ -98,7 +113,7 @@ public class serate {
     }
     static void usage(String option, int argument) {
         System.err.println("serate: " + option + ((argument == 1) ? ": option argument expected" : ": unknown option"));
-        System.err.println("Usage: serate [ --diamond ] [ --format=FORMAT ] [ --input=FILE ] [ --output=FILE ] [ --pearl ]");
+        System.err.println("Usage: serate [ --diamond ] [ --format=FORMAT ] [ --input=FILE ] [ --output=FILE ] [ --pearl ] [ --pool=COUNT ] [ --singles ] [ --threads=COUNT ] [ --timeout=SECONDS ]");
         System.exit(2);
     }
     /**
@@ -116,6 +131,10 @@ public class serate {
         BufferedReader  reader = null;
         PrintWriter     writer = null;
         int             ordinal = 0;
+        int             threads = 1;
+        int             pool = 0;
+        boolean         singles = false;
+        long            timeout = 0;
         char            want = 0;
         int             arg;
         long            t;
@@ -151,6 +170,14 @@ public class serate {
                         c = 'o';
                     else if (s.equals("pearl"))
                         c = 'p';
+                    else if (s.equals("pool"))
+                        c = 'P';
+                    else if (s.equals("singles"))
+                        c = 's';
+                    else if (s.equals("threads"))
+                        c = 't';
+                    else if (s.equals("timeout"))
+                        c = 'T';
                     else if (s.equals("version"))
                         c = 'V';
                     else
@@ -160,13 +187,16 @@ public class serate {
                     c = s.charAt(1);
                     if (s.length() > 2)
                         v = s.substring(2);
-                    else if (++arg < args.length)
+                    else if ("dhmpsV".indexOf(c) < 0 && ++arg < args.length)
                         v = args[arg];
                 }
                 switch (c) {
                 case 'f':
                 case 'i':
                 case 'o':
+                case 'P':
+                case 't':
+                case 'T':
                     if (v == null)
                         usage(a, 1);
                     break;
@@ -191,6 +221,36 @@ public class serate {
                 case 'o':
                     output = v;
                     break;
+                case 'P':
+                    try {
+                        pool = Integer.parseInt(v);
+                    } catch (NumberFormatException ex) {
+                        pool = 0;
+                    }
+                    if (pool < 1)
+                        usage(a, 1);
+                    break;
+                case 's':
+                    singles = true;
+                    break;
+                case 't':
+                    try {
+                        threads = Integer.parseInt(v);
+                    } catch (NumberFormatException ex) {
+                        threads = 0;
+                    }
+                    if (threads < 1)
+                        usage(a, 1);
+                    break;
+                case 'T':
+                    try {
+                        timeout = (long)(Double.parseDouble(v) * 1000);
+                    } catch (NumberFormatException ex) {
+                        timeout = 0;
+                    }
+                    if (timeout <= 0)
+                        usage(a, 1);
+                    break;
                 case 'V':
                     System.out.println(THISVERSION);
                     System.exit(0);
@@ -200,6 +260,8 @@ public class serate {
                     break;
                 }
             }
+            if (pool > 0)
+                SolverExecutor.setInstance(new SolverExecutor(pool));
             if (input != null) {
                 if (input.equals("-")) {
                     InputStreamReader reader0 = new InputStreamReader(System.in);
@@ -242,12 +304,20 @@ public class serate {
                     t = System.currentTimeMillis();
                     Solver solver = new Solver(grid);
                     solver.want = want;
+                    solver.setParallelism(threads);
+                    solver.setBatchingSingles(singles);
+                    if (timeout > 0)
+                        solver.setDeadline(new Deadline(timeout));
                     solver.rebuildPotentialValues();
                     ordinal++;
+                    String outcome = "ok";
                     try {
                         solver.getDifficulty();
+                        if (solver.isTimedOut())
+                            outcome = "timeout";
                     } catch (UnsupportedOperationException ex) {
                         solver.difficulty = solver.pearl = solver.diamond = 0.0;
+                        outcome = "error";
                     }
                     t = System.currentTimeMillis() - t;
                     s = "";
@@ -304,6 +374,9 @@ public class serate {
                             case 'n':
                                 s += ordinal;
                                 break;
+                            case 'o':
+                                s += outcome;
+                                break;
                             case 'p':
                                 w = (int)((solver.pearl + 0.05) * 10);
                                 p = w % 10;
@@ -37,6 +37,82 @@ public class CommonTuples {
         return null;
     }
 
+    /**
+     * Same as before, but with bit masks instead of bitsets.
+     * @param candidates the array of bit masks
+     * @param degree the degree
+     * @return the union of all bit masks, or <code>0</code>
+     */
+    public static int searchCommonTuple(int[] candidates, int degree) {
+        int result = 0;
+        for (int candidate : candidates) {
+            if ((candidate & (candidate - 1)) == 0)
+                return 0;
+            result |= candidate;
+        }
+        if (Integer.bitCount(result) == degree)
+            return result;
+        return 0;
+    }
+
+    /**
+     * Search all the tuples of two to <code>maxDegree</code> candidates for which
+     * {@link #searchCommonTuple(int[], int)} succeeds, with the number of
+     * candidates of the tuple as degree.
+     * <p>
+     * Instead of checking each tuple, the tuples are built one candidate at a
+     * time, from the highest index down. Candidates with less than two bits are
+     * skipped, and a tuple is abandoned as soon as the union of its candidates
+     * has more than <code>maxDegree</code> bits. Each tuple is returned as an
+     * <tt>int</tt> holding the bit mask of the indexes of its candidates in the
+     * upper 16 bits, and the union of their bit masks in the lower 16 bits.
+     * The tuples of a degree are in the order in which {@link Permutations}
+     * generates the bit masks of their indexes.
+     * @param candidates the array of at most 16 bit masks of 16 bits
+     * @param maxDegree the largest degree of the tuples
+     * @return the tuples found, indexed by degree
+     */
+    public static int[][] getCommonTuples(int[] candidates, int maxDegree) {
+        int[][] result = new int[maxDegree + 1][];
+        int[] counts = new int[maxDegree + 1];
+        for (int degree = 0; degree <= maxDegree; degree++)
+            result[degree] = new int[4];
+        addCommonTuples(candidates, maxDegree, candidates.length, 0, 0, 0, result, counts);
+        for (int degree = 0; degree <= maxDegree; degree++)
+            result[degree] = Arrays.copyOf(result[degree], counts[degree]);
+        return result;
+    }
+
+    /**
+     * Add the tuples made of the given ones and of candidates of lower indexes
+     * @param upper the lowest index of the given candidates
+     * @param indexes the bit mask of the indexes of the given candidates
+     * @param union the union of the given candidates
+     * @param count the number of the given candidates
+     */
+    private static void addCommonTuples(int[] candidates, int maxDegree, int upper,
+            int indexes, int union, int count, int[][] result, int[] counts) {
+        for (int index = 0; index < upper; index++) {
+            int candidate = candidates[index];
+            if ((candidate & (candidate - 1)) == 0)
+                continue;
+            int newUnion = union | candidate;
+            int cardinality = Integer.bitCount(newUnion);
+            if (cardinality > maxDegree)
+                continue;
+            int newIndexes = indexes | (1 << index);
+            if (cardinality == count + 1 && count > 0) {
+                int degree = count + 1;
+                if (counts[degree] == result[degree].length)
+                    result[degree] = Arrays.copyOf(result[degree], counts[degree] * 2);
+                result[degree][counts[degree]++] = (newIndexes << 16) | newUnion;
+            }
+            if (count + 1 < maxDegree)
+                addCommonTuples(candidates, maxDegree, index, newIndexes, newUnion, count + 1,
+                        result, counts);
+        }
+    }
+
     /**
      * Same as before, but all bitsets must only have non-zero
      * cardinality instead of grater than one.